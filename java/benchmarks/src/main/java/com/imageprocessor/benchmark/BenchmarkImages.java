@@ -0,0 +1,38 @@
+package com.imageprocessor.benchmark;
+
+/**
+ * Synthetic benchmark inputs
+ */
+final class BenchmarkImages {
+
+    private BenchmarkImages() {
+    }
+
+    /**
+     * Parse a size parameter such as "1920x1080"
+     */
+    static int[] parseSize(String size) {
+        String[] parts = size.split("x");
+        return new int[] {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+    }
+
+    /**
+     * Deterministic noisy gradient so no filter hits a trivial fast path
+     */
+    static int[] pixels(int width, int height) {
+        int[] pixels = new int[width * height];
+        int seed = 0x9E3779B9;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                seed ^= seed << 13;
+                seed ^= seed >>> 17;
+                seed ^= seed << 5;
+                int r = (x * 255 / width + (seed & 0x1F)) & 0xFF;
+                int g = (y * 255 / height + ((seed >> 8) & 0x1F)) & 0xFF;
+                int b = ((x + y) & 0xFF) ^ ((seed >> 16) & 0x1F);
+                pixels[y * width + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return pixels;
+    }
+}
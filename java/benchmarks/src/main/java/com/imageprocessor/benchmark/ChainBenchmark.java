@@ -0,0 +1,64 @@
+package com.imageprocessor.benchmark;
+
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.core.FilterType;
+import com.imageprocessor.core.PixelKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Four-filter chain applied as separate passes versus fused into one pass
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Djava.awt.headless=true", "-Xmx6g"})
+public class ChainBenchmark {
+
+    private static final FilterType[] CHAIN = {
+        FilterType.GRAYSCALE, FilterType.CONTRAST, FilterType.BRIGHTNESS, FilterType.INVERT
+    };
+
+    @Param({"256x256", "1920x1080", "3840x2160", "7680x4320"})
+    public String size;
+
+    private int[] source;
+    private int[] target;
+    private FilterChain fusedChain;
+
+    @Setup
+    public void setup() {
+        int[] dimensions = BenchmarkImages.parseSize(size);
+        source = BenchmarkImages.pixels(dimensions[0], dimensions[1]);
+        target = new int[source.length];
+        fusedChain = FilterChain.of(CHAIN);
+    }
+
+    @Benchmark
+    public int[] sequentialPasses() {
+        PixelKernels.apply(CHAIN[0], source, target, 0, source.length);
+        for (int i = 1; i < CHAIN.length; i++) {
+            PixelKernels.apply(CHAIN[i], target, target, 0, target.length);
+        }
+        return target;
+    }
+
+    @Benchmark
+    public int[] fusedPass() {
+        fusedChain.apply(source, target, 0, source.length);
+        return target;
+    }
+}
@@ -0,0 +1,60 @@
+package com.imageprocessor.benchmark;
+
+import com.imageprocessor.core.Convolution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Box blur and sharpen by radius; throughput should not depend on the radius
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx6g"})
+public class ConvolutionBenchmark {
+
+    @Param({"256x256", "1920x1080", "3840x2160", "7680x4320"})
+    public String size;
+
+    @Param({"1", "5", "20"})
+    public int radius;
+
+    private int width;
+    private int height;
+    private int[] source;
+    private int[] target;
+
+    @Setup
+    public void setup() {
+        int[] dimensions = BenchmarkImages.parseSize(size);
+        width = dimensions[0];
+        height = dimensions[1];
+        source = BenchmarkImages.pixels(width, height);
+        target = new int[source.length];
+    }
+
+    @Benchmark
+    public int[] boxBlur() {
+        Convolution.boxBlur(radius).apply(source, target, width, height);
+        return target;
+    }
+
+    @Benchmark
+    public int[] sharpen() {
+        Convolution.sharpen(radius, 1.0).apply(source, target, width, height);
+        return target;
+    }
+}
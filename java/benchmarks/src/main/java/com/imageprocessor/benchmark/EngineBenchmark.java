@@ -0,0 +1,67 @@
+package com.imageprocessor.benchmark;
+
+import com.imageprocessor.core.FilterType;
+import com.imageprocessor.core.ParallelExecutor;
+import com.imageprocessor.core.PixelKernels;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Engine internals on raw ARGB buffers, without JavaFX transfer cost.
+ * New engine variants (SIMD, alternative layouts) belong here next to the scalar baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Djava.awt.headless=true", "-Xmx6g"})
+public class EngineBenchmark {
+
+    @Param({"256x256", "1920x1080", "3840x2160", "7680x4320"})
+    public String size;
+
+    @Param({"GRAYSCALE", "INVERT", "BRIGHTNESS", "CONTRAST", "SEPIA"})
+    public FilterType filter;
+
+    private int width;
+    private int height;
+    private int[] source;
+    private int[] target;
+
+    @Setup
+    public void setup() {
+        int[] dimensions = BenchmarkImages.parseSize(size);
+        width = dimensions[0];
+        height = dimensions[1];
+        source = BenchmarkImages.pixels(width, height);
+        target = new int[source.length];
+    }
+
+    /** Single-threaded scalar kernel, the baseline for every other variant */
+    @Benchmark
+    public int[] scalarKernel() {
+        PixelKernels.apply(filter, source, target, 0, source.length);
+        return target;
+    }
+
+    /** Scalar kernel split into row bands on the filter pool */
+    @Benchmark
+    public int[] parallelKernel() {
+        int w = width;
+        ParallelExecutor.forEachBand(w, height, (fromRow, toRow) ->
+            PixelKernels.apply(filter, source, target, fromRow * w, toRow * w));
+        return target;
+    }
+}
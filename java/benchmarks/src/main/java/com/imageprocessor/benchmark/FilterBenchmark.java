@@ -0,0 +1,55 @@
+package com.imageprocessor.benchmark;
+
+import com.imageprocessor.core.FilterType;
+import com.imageprocessor.core.ImageProcessor;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Public ImageProcessor API on JavaFX images: applyFilter and copyImage for every filter and size
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Djava.awt.headless=true", "-Dprism.order=sw", "-Xmx6g"})
+public class FilterBenchmark {
+
+    @Param({"256x256", "1920x1080", "3840x2160", "7680x4320"})
+    public String size;
+
+    @Param({"ORIGINAL", "GRAYSCALE", "INVERT", "BRIGHTNESS", "CONTRAST", "SEPIA", "BLUR", "SHARPEN", "EDGE_DETECT"})
+    public FilterType filter;
+
+    private Image source;
+
+    @Setup
+    public void setup() {
+        int[] dimensions = BenchmarkImages.parseSize(size);
+        source = ImageProcessor.createImage(
+            BenchmarkImages.pixels(dimensions[0], dimensions[1]), dimensions[0], dimensions[1]);
+    }
+
+    @Benchmark
+    public Image applyFilter() {
+        return ImageProcessor.applyFilter(source, filter);
+    }
+
+    @Benchmark
+    public Image copyImage() {
+        return ImageProcessor.copyImage(source);
+    }
+}
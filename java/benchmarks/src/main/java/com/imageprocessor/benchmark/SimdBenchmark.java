@@ -0,0 +1,65 @@
+package com.imageprocessor.benchmark;
+
+import com.imageprocessor.core.FilterType;
+import com.imageprocessor.core.LinearLight;
+import com.imageprocessor.core.PixelKernels;
+import com.imageprocessor.core.SimdEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Colour-matrix filters with the Vector API kernel switched on and off, and in linear light
+ * (scalar table path, the SIMD switch has no effect there)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Djava.awt.headless=true", "-Xmx6g"})
+public class SimdBenchmark {
+
+    @Param({"256x256", "1920x1080", "3840x2160", "7680x4320"})
+    public String size;
+
+    @Param({"GRAYSCALE", "SEPIA"})
+    public FilterType filter;
+
+    @Param({"false", "true"})
+    public boolean simd;
+
+    @Param({"false", "true"})
+    public boolean linear;
+
+    private int[] source;
+    private int[] target;
+
+    @Setup
+    public void setup() {
+        if (simd && !SimdEngine.isAvailable()) {
+            throw new IllegalStateException("Vector API not available in the forked JVM");
+        }
+        SimdEngine.setEnabled(simd);
+        LinearLight.setEnabled(linear);
+        int[] dimensions = BenchmarkImages.parseSize(size);
+        source = BenchmarkImages.pixels(dimensions[0], dimensions[1]);
+        target = new int[source.length];
+    }
+
+    @Benchmark
+    public int[] colorMatrix() {
+        PixelKernels.apply(filter, source, target, 0, source.length);
+        return target;
+    }
+}
@@ -0,0 +1,473 @@
+package com.imageprocessor.cli;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.core.FilterFanOut;
+import com.imageprocessor.core.FilterType;
+import com.imageprocessor.core.LinearLight;
+import com.imageprocessor.io.ContactSheet;
+import com.imageprocessor.io.ImageCodec;
+import com.imageprocessor.io.RawPixelCache;
+import com.imageprocessor.io.SequenceProcessor;
+import com.imageprocessor.io.StreamingFilter;
+import com.imageprocessor.metrics.PerformanceMetrics;
+
+import java.awt.Dimension;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Headless batch entry point: filters every image in a directory without starting JavaFX
+ */
+public class BatchProcessor {
+
+    /** Filtered outputs a worker keeps in memory at once without --chain */
+    private static final int MAX_LIVE_OUTPUTS = 4;
+
+    private final File inputDir;
+    private final File outputDir;
+    private final List<FilterType> filters;
+    private final boolean chained;
+    private final boolean streaming;
+    private final boolean contactSheet;
+    private final boolean sequence;
+    private final double targetFps;
+    private final RawPixelCache rawCache;
+    private final int threads;
+    private final int queueSize;
+    private final String format;
+    private final File metricsFile;
+
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong pixelsProcessed = new AtomicLong();
+
+    public BatchProcessor(File inputDir, File outputDir, List<FilterType> filters,
+                          boolean chained, boolean streaming, boolean contactSheet, boolean sequence,
+                          double targetFps, RawPixelCache rawCache, int threads, int queueSize, String format,
+                          File metricsFile) {
+        this.inputDir = inputDir;
+        this.outputDir = outputDir;
+        this.filters = filters;
+        this.chained = chained;
+        this.streaming = streaming;
+        this.contactSheet = contactSheet;
+        this.sequence = sequence;
+        this.targetFps = targetFps;
+        this.rawCache = rawCache;
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.format = format;
+        this.metricsFile = metricsFile;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            BatchProcessor processor = parse(args);
+            int failures = processor.run();
+            System.exit(failures == 0 ? 0 : 1);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage();
+            System.exit(2);
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    static BatchProcessor parse(String[] args) {
+        File input = null;
+        File output = null;
+        List<FilterType> filters = Arrays.asList(FilterType.values());
+        boolean chained = false;
+        boolean streaming = false;
+        boolean contactSheet = false;
+        boolean sequence = false;
+        double targetFps = 0;
+        RawPixelCache rawCache = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queueSize = -1;
+        String format = null;
+        File metricsFile = null;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-i", "--input" -> input = new File(value(args, ++i, arg));
+                case "-o", "--output" -> output = new File(value(args, ++i, arg));
+                case "-f", "--filters" -> filters = parseFilters(value(args, ++i, arg));
+                case "--chain" -> chained = true;
+                case "--streaming" -> streaming = true;
+                case "--contact-sheet" -> contactSheet = true;
+                case "--sequence" -> sequence = true;
+                case "--fps" -> targetFps = parsePositive(value(args, ++i, arg), arg);
+                case "--raw-cache" -> rawCache = new RawPixelCache();
+                case "--linear" -> LinearLight.setEnabled(true);
+                case "-t", "--threads" -> threads = parsePositive(value(args, ++i, arg), arg);
+                case "-q", "--queue" -> queueSize = parsePositive(value(args, ++i, arg), arg);
+                case "--format" -> format = parseFormat(value(args, ++i, arg));
+                case "--metrics" -> metricsFile = new File(value(args, ++i, arg));
+                case "-h", "--help" -> {
+                    printUsage();
+                    System.exit(0);
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Input and output directories are required");
+        }
+        if (!input.isDirectory()) {
+            throw new IllegalArgumentException("Not a directory: " + input);
+        }
+        if (streaming && format != null && !StreamingFilter.supportsOutput(format)) {
+            throw new IllegalArgumentException("--streaming writes PNG or BMP, not " + format);
+        }
+        if (sequence && (streaming || contactSheet)) {
+            throw new IllegalArgumentException("--sequence cannot be combined with --streaming or --contact-sheet");
+        }
+        if (queueSize < 0) {
+            queueSize = threads * 2;
+        }
+        return new BatchProcessor(input, output, filters, chained, streaming, contactSheet, sequence, targetFps,
+            rawCache, threads, queueSize, format, metricsFile);
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int parsePositive(String value, String option) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 1) {
+                throw new IllegalArgumentException(option + " must be at least 1");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+        }
+    }
+
+    private static String parseFormat(String value) {
+        String extension = value.startsWith(".") ? value.substring(1) : value;
+        if (!ImageCodec.isSupported(new File("x." + extension))) {
+            throw new IllegalArgumentException("Unsupported output format: " + value);
+        }
+        return ImageCodec.formatOf(new File("x." + extension));
+    }
+
+    private static List<FilterType> parseFilters(String value) {
+        if (value.equalsIgnoreCase("all")) {
+            return Arrays.asList(FilterType.values());
+        }
+        List<FilterType> filters = new ArrayList<>();
+        for (String name : value.split(",")) {
+            if (!name.isBlank()) {
+                filters.add(FilterType.fromName(name.trim()));
+            }
+        }
+        if (filters.isEmpty()) {
+            throw new IllegalArgumentException("No filters given");
+        }
+        return filters;
+    }
+
+    private static void printUsage() {
+        System.out.println("""
+            Usage: BatchProcessor --input <dir> --output <dir> [options]
+              -f, --filters <list>   Comma separated filters or 'all' (default: all)
+                  --chain            Apply the filters as one fused chain, one output per image
+                  --streaming        Filter strip by strip so memory does not grow with image size
+                                     (PNG or BMP output)
+                  --contact-sheet    Also write {name}_contact with a labelled thumbnail of
+                                     every filter
+                  --sequence         Treat the input as numbered frames: decode, filter and encode
+                                     them in a pipeline through the filters as one chain, keeping
+                                     frame names, and report sustained fps
+                  --fps <n>          With --sequence, pace output to n frames per second
+                                     (default: as fast as possible)
+                  --raw-cache        Keep decoded pixels in a memory-mapped disk cache so
+                                     re-runs skip decoding
+                  --linear           Mix Grayscale and Sepia in linear light instead of sRGB
+              -t, --threads <n>      Worker threads (default: processor count)
+              -q, --queue <n>        Images waiting for a worker (default: 2 x threads)
+                  --format <ext>     Output format png, jpg or bmp (default: input format)
+                  --metrics <file>   Write latency percentiles per operation, filter and image
+                                     size as CSV""");
+    }
+
+    /**
+     * Process every supported image in the input directory
+     *
+     * @return number of images that failed; for a sequence, frames that were not written or
+     *         missed the target frame rate
+     */
+    public int run() throws IOException, InterruptedException {
+        if (sequence) {
+            return runSequence();
+        }
+        File[] files = inputDir.listFiles(file -> file.isFile() && ImageCodec.isSupported(file));
+        if (files == null) {
+            throw new IOException("Cannot list " + inputDir);
+        }
+        Arrays.sort(files);
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create " + outputDir);
+        }
+        Map<File, String> baseNames = baseNames(Arrays.asList(files));
+
+        FilterFanOut fanOut = FilterFanOut.ofTypes(filters);
+        List<FilterChain> chains = new ArrayList<>();
+        if (chained) {
+            chains.add(FilterChain.of(filters));
+        } else {
+            for (FilterType filterType : filters) {
+                chains.add(FilterChain.of(filterType));
+            }
+        }
+
+        // Workers decode, filter and encode in parallel; a file is only handed over after taking a
+        // permit, so permits bound the images in flight. Streaming never decodes a whole image.
+        Semaphore inFlight = new Semaphore(threads + queueSize);
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        long start = System.nanoTime();
+        try {
+            for (File file : files) {
+                String baseName = baseNames.get(file);
+                inFlight.acquire();
+                workers.execute(() -> {
+                    try {
+                        if (streaming) {
+                            streamFile(file, baseName, chains, fanOut);
+                        } else {
+                            ArgbImage source = decode(file);
+                            if (source != null) {
+                                processFile(file, baseName, source, chains, fanOut);
+                            }
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        printSummary(elapsed);
+        if (metricsFile != null) {
+            writeMetrics();
+        }
+        return failed.get();
+    }
+
+    /**
+     * Filter the input directory as one frame sequence through the decode, filter and encode pipeline
+     */
+    private int runSequence() throws IOException {
+        List<File> frames = SequenceProcessor.listFrames(inputDir);
+        if (format != null) {
+            // Frames keep their names, so a.png and a.jpg would both become a.{format}
+            Map<File, String> baseNames = baseNames(frames);
+            for (File frame : frames) {
+                if (!baseNames.get(frame).equals(baseName(frame))) {
+                    throw new IOException("Frames with the same name would overwrite each other: " + frame.getName());
+                }
+            }
+        }
+        SequenceProcessor processor = new SequenceProcessor(frames, FilterChain.of(filters));
+        processor.setOutput(outputDir, format);
+        processor.setTargetFps(targetFps);
+
+        SequenceProcessor.Report report;
+        try {
+            report = processor.start().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Sequence failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        System.out.printf("✓ Processed %d frames in %.2f s: %.2f fps sustained%n",
+            report.frames(), report.elapsedNanos() / 1e9, report.getFps());
+        for (SequenceProcessor.StageLatency stage : report.stages()) {
+            System.out.printf("  %-7s mean %7.2f ms, max %7.2f ms%n", stage.stage(), stage.meanMillis(), stage.maxMillis());
+        }
+        if (report.lateFrames() > 0) {
+            System.out.printf("  %d frames missed the %.0f fps target%n", report.lateFrames(), targetFps);
+        }
+        if (metricsFile != null) {
+            writeMetrics();
+        }
+        return report.totalFrames() - report.frames() + report.lateFrames();
+    }
+
+    /**
+     * Decoded image, or null after reporting the failure
+     */
+    private ArgbImage decode(File file) {
+        try {
+            return rawCache != null ? rawCache.load(file) : ImageCodec.read(file);
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("✗ " + file.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void processFile(File file, String baseName, ArgbImage source, List<FilterChain> chains, FilterFanOut fanOut) {
+        try {
+            String outputFormat = format != null ? format : ImageCodec.formatOf(file);
+            int[] pixels = source.getPixels();
+
+            if (chained) {
+                FilterChain chain = chains.get(0);
+                PerformanceMetrics.Measurement measurement =
+                    PerformanceMetrics.start(PerformanceMetrics.CHAIN, chain.getName());
+                int[] target;
+                if (chain.isPointwise()) {
+                    target = new int[pixels.length];
+                    chain.bind(source, null).apply(pixels, target, 0, target.length);
+                } else {
+                    // Neighbourhood steps need whole rows around each pixel
+                    target = chain.render(source).getPixels();
+                }
+                measurement.stop(target.length);
+                write(new ArgbImage(source.getWidth(), source.getHeight(), target), baseName, "chain", outputFormat);
+            } else {
+                // A few filters share each read of the source, and each output is encoded as soon
+                // as its group is rendered rather than holding one per filter
+                try {
+                    fanOut.render(source, MAX_LIVE_OUTPUTS, (output, i) -> {
+                        try {
+                            write(output, baseName, suffix(fanOut.getOutputs().get(i).getFilterType()), outputFormat);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            if (contactSheet) {
+                write(ContactSheet.compose(source, fanOut, ContactSheet.DEFAULT_TILE_SIZE), baseName, "contact", outputFormat);
+            }
+
+            processed.incrementAndGet();
+            pixelsProcessed.addAndGet((long) source.getPixelCount() * chains.size());
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("✗ " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void write(ArgbImage image, String baseName, String suffix, String outputFormat) throws IOException {
+        ImageCodec.write(image, new File(outputDir, baseName + "_" + suffix + "." + outputFormat), outputFormat);
+    }
+
+    /**
+     * File name suffix of a filter's output, the enum name in lower case so it has no spaces
+     */
+    private static String suffix(FilterType filterType) {
+        return filterType.name().toLowerCase(Locale.ROOT);
+    }
+
+    private void streamFile(File file, String baseName, List<FilterChain> chains, FilterFanOut fanOut) {
+        try {
+            String inputFormat = ImageCodec.formatOf(file);
+            String outputFormat = format != null ? format
+                : StreamingFilter.supportsOutput(inputFormat) ? inputFormat : "png";
+            Dimension size = StreamingFilter.readSize(file);
+
+            for (FilterChain chain : chains) {
+                String suffix = chained ? "chain" : suffix(chain.getFilters().get(0));
+                File target = new File(outputDir, baseName + "_" + suffix + "." + outputFormat);
+                StreamingFilter.process(file, target, outputFormat, chain, StreamingFilter.DEFAULT_STRIP_PIXELS, null);
+            }
+            if (contactSheet) {
+                // Subsampled decode keeps the sheet within memory as well
+                ArgbImage thumbnail = StreamingFilter.readThumbnail(file, ContactSheet.DEFAULT_TILE_SIZE);
+                FilterFanOut thumbnailFanOut = fanOut.scaled((double) thumbnail.getWidth() / size.width);
+                write(ContactSheet.compose(thumbnail, thumbnailFanOut, ContactSheet.DEFAULT_TILE_SIZE),
+                    baseName, "contact", outputFormat);
+            }
+
+            processed.incrementAndGet();
+            pixelsProcessed.addAndGet((long) size.width * size.height * chains.size());
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("✗ " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void writeMetrics() throws IOException {
+        try (Writer writer = Files.newBufferedWriter(metricsFile.toPath(), StandardCharsets.UTF_8)) {
+            PerformanceMetrics.writeCsv(writer);
+        }
+        System.out.println("  Metrics: " + metricsFile);
+    }
+
+    /**
+     * Output name stem per input. Inputs that differ only in extension, such as a.png and a.jpg,
+     * keep it in the stem (a_png, a_jpg) so their outputs do not overwrite each other.
+     */
+    static Map<File, String> baseNames(List<File> files) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (File file : files) {
+            counts.merge(baseName(file).toLowerCase(Locale.ROOT), 1, Integer::sum);
+        }
+        Map<File, String> names = new HashMap<>();
+        for (File file : files) {
+            String name = baseName(file);
+            names.put(file, counts.get(name.toLowerCase(Locale.ROOT)) > 1 ? file.getName().replace('.', '_') : name);
+        }
+        return names;
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    private void printSummary(long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos / 1e9, 1e-9);
+        int images = processed.get();
+        double megapixels = pixelsProcessed.get() / 1e6;
+        System.out.printf("✓ Processed %d images (%d failed) in %.2f s%n", images, failed.get(), seconds);
+        System.out.printf("  Throughput: %.2f images/sec, %.2f MP/sec%n", images / seconds, megapixels / seconds);
+    }
+}
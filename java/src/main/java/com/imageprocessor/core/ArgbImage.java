@@ -0,0 +1,47 @@
+package com.imageprocessor.core;
+
+/**
+ * Toolkit-independent image held as packed, non-premultiplied ARGB pixels
+ */
+public final class ArgbImage {
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+
+    public ArgbImage(int width, int height, int[] pixels) {
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("Pixel buffer too small for " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = pixels;
+    }
+
+    public ArgbImage(int width, int height) {
+        this(width, height, new int[width * height]);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Backing pixel array, row-major with a stride equal to the width
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    public int getPixelCount() {
+        return width * height;
+    }
+
+    public ArgbImage copy() {
+        return new ArgbImage(width, height, pixels.clone());
+    }
+}
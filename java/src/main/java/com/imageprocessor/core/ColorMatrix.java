@@ -0,0 +1,207 @@
+package com.imageprocessor.core;
+
+/**
+ * Linear 3x4 colour matrix (RGB coefficients plus offset) applied in fixed point, to the sRGB
+ * values or to linear light, as chosen when the matrix is built
+ */
+public final class ColorMatrix implements PixelStage {
+
+    static final int SHIFT = 16;
+    private static final double ONE = 1 << SHIFT;
+    private static final int HALF = 1 << (SHIFT - 1);
+    /** Linear-light coefficients are coarser so 16-bit channels times coefficients fit in an int */
+    static final int LINEAR_SHIFT = 14;
+
+    private static final double[] GRAYSCALE = {
+        0.299, 0.587, 0.114, 0,
+        0.299, 0.587, 0.114, 0,
+        0.299, 0.587, 0.114, 0
+    };
+
+    private static final double[] SEPIA = {
+        0.393, 0.769, 0.189, 0,
+        0.349, 0.686, 0.168, 0,
+        0.272, 0.534, 0.131, 0
+    };
+
+    private static final ColorMatrix GRAYSCALE_SRGB = new ColorMatrix(GRAYSCALE, false);
+    private static final ColorMatrix GRAYSCALE_LINEAR = new ColorMatrix(GRAYSCALE, true);
+    private static final ColorMatrix SEPIA_SRGB = new ColorMatrix(SEPIA, false);
+    private static final ColorMatrix SEPIA_LINEAR = new ColorMatrix(SEPIA, true);
+
+    /** Row-major coefficients, offsets in 0..255 channel units */
+    private final double[] m;
+    private final boolean linearLight;
+    private final int rr, rg, rb, ro;
+    private final int gr, gg, gb, go;
+    private final int br, bg, bb, bo;
+    /** Fixed-point coefficients in the order above, handed to vector kernels */
+    private final int[] fixed;
+    /** Coefficients at {@link #LINEAR_SHIFT}, offsets scaled to 16-bit linear light with rounding */
+    private final int[] linearFixed;
+    /** Whether linear-light sums stay within an int, which vector kernels rely on */
+    private final boolean linearFitsInt;
+
+    /**
+     * Matrix mixing in linear light if {@link LinearLight} is enabled now
+     */
+    public ColorMatrix(double[] coefficients) {
+        this(coefficients, LinearLight.isEnabled());
+    }
+
+    public ColorMatrix(double[] coefficients, boolean linearLight) {
+        if (coefficients.length != 12) {
+            throw new IllegalArgumentException("Colour matrix needs 12 coefficients");
+        }
+        this.m = coefficients.clone();
+        this.linearLight = linearLight;
+        rr = fixed(m[0]); rg = fixed(m[1]); rb = fixed(m[2]); ro = fixed(m[3]) + HALF;
+        gr = fixed(m[4]); gg = fixed(m[5]); gb = fixed(m[6]); go = fixed(m[7]) + HALF;
+        br = fixed(m[8]); bg = fixed(m[9]); bb = fixed(m[10]); bo = fixed(m[11]) + HALF;
+        fixed = new int[] {rr, rg, rb, ro, gr, gg, gb, go, br, bg, bb, bo};
+        linearFixed = new int[12];
+        boolean fits = true;
+        for (int row = 0; row < 3; row++) {
+            long bound = 0;
+            for (int k = 0; k < 3; k++) {
+                linearFixed[row * 4 + k] = (int) Math.round(m[row * 4 + k] * (1 << LINEAR_SHIFT));
+                bound += Math.abs((long) linearFixed[row * 4 + k]) * LinearLight.MAX;
+            }
+            long offset = Math.round(m[row * 4 + 3] / 255 * LinearLight.MAX * (1 << LINEAR_SHIFT))
+                + (1 << (LINEAR_SHIFT - 1));
+            fits &= bound + Math.abs(offset) <= Integer.MAX_VALUE && offset == (int) offset;
+            linearFixed[row * 4 + 3] = (int) offset;
+        }
+        linearFitsInt = fits;
+    }
+
+    private static int fixed(double value) {
+        return (int) Math.round(value * ONE);
+    }
+
+    /**
+     * Whether the filter is a linear colour-matrix filter
+     */
+    public static boolean isLinear(FilterType filterType) {
+        return filterType == FilterType.GRAYSCALE || filterType == FilterType.SEPIA;
+    }
+
+    /**
+     * Matrix of the filter in the current {@link LinearLight} mode
+     */
+    public static ColorMatrix forFilter(FilterType filterType) {
+        return forFilter(filterType, LinearLight.isEnabled());
+    }
+
+    public static ColorMatrix forFilter(FilterType filterType, boolean linearLight) {
+        return switch (filterType) {
+            case GRAYSCALE -> linearLight ? GRAYSCALE_LINEAR : GRAYSCALE_SRGB;
+            case SEPIA -> linearLight ? SEPIA_LINEAR : SEPIA_SRGB;
+            default -> throw new IllegalArgumentException(filterType + " is not a colour-matrix filter");
+        };
+    }
+
+    /**
+     * Whether channels are mixed in linear light rather than as sRGB-encoded values
+     */
+    public boolean isLinearLight() {
+        return linearLight;
+    }
+
+    /**
+     * Matrix equivalent to applying this matrix and then the next one.
+     * Only exact when this matrix never leaves the 0..255 range, see {@link #isRangePreserving()}.
+     */
+    public ColorMatrix andThen(ColorMatrix next) {
+        if (next.linearLight != linearLight) {
+            throw new IllegalArgumentException("Cannot compose sRGB and linear-light matrices");
+        }
+        double[] n = next.m;
+        double[] out = new double[12];
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 4; col++) {
+                double sum = 0;
+                for (int k = 0; k < 3; k++) {
+                    sum += n[row * 4 + k] * m[k * 4 + col];
+                }
+                if (col == 3) {
+                    sum += n[row * 4 + 3];
+                }
+                out[row * 4 + col] = sum;
+            }
+        }
+        return new ColorMatrix(out, linearLight);
+    }
+
+    /**
+     * True when every output channel stays within 0..255 for any input, so no clamping is lost
+     * by composing with a following matrix
+     */
+    public boolean isRangePreserving() {
+        for (int row = 0; row < 3; row++) {
+            double low = m[row * 4 + 3];
+            double high = m[row * 4 + 3];
+            for (int k = 0; k < 3; k++) {
+                double c = m[row * 4 + k] * 255;
+                if (c < 0) {
+                    low += c;
+                } else {
+                    high += c;
+                }
+            }
+            if (low < -0.5 || high > 255.5) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void apply(int[] src, int[] dst, int from, int to) {
+        if (linearLight) {
+            applyLinear(src, dst, from, to);
+            return;
+        }
+        MatrixKernel vectorKernel = SimdEngine.matrixKernel();
+        if (vectorKernel != null) {
+            // Vector kernel stops at a whole number of lanes, the scalar loop finishes the tail
+            from = vectorKernel.apply(fixed, src, dst, from, to);
+        }
+        for (int i = from; i < to; i++) {
+            int p = src[i];
+            int r = (p >> 16) & 0xFF;
+            int g = (p >> 8) & 0xFF;
+            int b = p & 0xFF;
+            int nr = clamp((r * rr + g * rg + b * rb + ro) >> SHIFT);
+            int ng = clamp((r * gr + g * gg + b * gb + go) >> SHIFT);
+            int nb = clamp((r * br + g * bg + b * bb + bo) >> SHIFT);
+            dst[i] = (p & 0xFF000000) | (nr << 16) | (ng << 8) | nb;
+        }
+    }
+
+    /**
+     * Decode to 16-bit linear light, mix, and encode back, all through tables. The scalar loop
+     * sums in 64 bits so any matrix works; vector kernels take matrices whose sums fit in 32.
+     */
+    private void applyLinear(int[] src, int[] dst, int from, int to) {
+        MatrixKernel vectorKernel = SimdEngine.matrixKernel();
+        if (vectorKernel != null && linearFitsInt) {
+            from = vectorKernel.applyLinear(linearFixed, src, dst, from, to);
+        }
+        int[] l = linearFixed;
+        for (int i = from; i < to; i++) {
+            int p = src[i];
+            long r = LinearLight.toLinear((p >> 16) & 0xFF);
+            long g = LinearLight.toLinear((p >> 8) & 0xFF);
+            long b = LinearLight.toLinear(p & 0xFF);
+            int nr = LinearLight.toSrgb((int) ((r * l[0] + g * l[1] + b * l[2] + l[3]) >> LINEAR_SHIFT));
+            int ng = LinearLight.toSrgb((int) ((r * l[4] + g * l[5] + b * l[6] + l[7]) >> LINEAR_SHIFT));
+            int nb = LinearLight.toSrgb((int) ((r * l[8] + g * l[9] + b * l[10] + l[11]) >> LINEAR_SHIFT));
+            dst[i] = (p & 0xFF000000) | (nr << 16) | (ng << 8) | nb;
+        }
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
+}
@@ -0,0 +1,272 @@
+package com.imageprocessor.core;
+
+/**
+ * Neighbourhood filters: box blur, unsharp-mask sharpen and Sobel edge detection. Each kernel
+ * runs as a horizontal and a vertical 1D pass, and the box blur keeps running sums so its cost
+ * per pixel does not grow with the radius.
+ *
+ * <p>Row bands run in parallel on the filter pool. A band reads the halo rows around it straight
+ * from the source and streams its rows through a ring of {@code 2 * radius + 2} intermediate rows,
+ * so the working set stays in cache and bands never wait for each other.
+ */
+public final class Convolution {
+
+    /** Bands span at least this many radii, keeping re-read halo rows a small share of the work */
+    private static final int MIN_BAND_RADII = 8;
+
+    private static final int SHIFT = 16;
+    private static final int HALF = 1 << (SHIFT - 1);
+
+    private enum Kind { COPY, BOX_BLUR, SHARPEN, SOBEL }
+
+    private final Kind kind;
+    private final int radius;
+    /** Sharpen strength in 8.8 fixed point */
+    private final int amount;
+
+    private Convolution(Kind kind, int radius, double amount) {
+        this.kind = kind;
+        this.radius = radius;
+        this.amount = (int) Math.round(amount * 256);
+    }
+
+    /**
+     * Mean of the (2 * radius + 1) square around each pixel, edges repeated
+     */
+    public static Convolution boxBlur(int radius) {
+        if (radius < 1) {
+            throw new IllegalArgumentException("Blur radius must be at least 1: " + radius);
+        }
+        return new Convolution(Kind.BOX_BLUR, radius, 0);
+    }
+
+    /**
+     * Unsharp mask - c + amount * (c - boxBlur(radius))
+     */
+    public static Convolution sharpen(int radius, double amount) {
+        if (radius < 1) {
+            throw new IllegalArgumentException("Sharpen radius must be at least 1: " + radius);
+        }
+        return new Convolution(Kind.SHARPEN, radius, amount);
+    }
+
+    /**
+     * Sobel gradient magnitude of the luma as a grayscale image
+     */
+    public static Convolution sobel() {
+        return new Convolution(Kind.SOBEL, 1, 0);
+    }
+
+    public static Convolution forParams(FilterParams params) {
+        return forParams(params, 1);
+    }
+
+    /**
+     * Kernel for an image scale times the width of the one the radii are meant for, e.g. a
+     * preview proxy of the image that will be saved, so both look equally blurred or sharpened
+     * at their own size. Radii that shrink below half a pixel leave the image unchanged; the
+     * Sobel kernel is fixed at one pixel.
+     */
+    public static Convolution forParams(FilterParams params, double scale) {
+        return switch (params.getFilterType()) {
+            case BLUR -> {
+                int radius = scaledRadius(params.get("radius"), scale);
+                yield radius == 0 ? new Convolution(Kind.COPY, 0, 0) : boxBlur(radius);
+            }
+            case SHARPEN -> {
+                int radius = scaledRadius(params.get("radius"), scale);
+                yield radius == 0 ? new Convolution(Kind.COPY, 0, 0) : sharpen(radius, params.get("amount"));
+            }
+            case EDGE_DETECT -> sobel();
+            default -> throw new IllegalArgumentException(params.getFilterType() + " is not a neighbourhood filter");
+        };
+    }
+
+    private static int scaledRadius(double radius, double scale) {
+        if (!(scale > 0)) {
+            throw new IllegalArgumentException("Scale must be positive: " + scale);
+        }
+        return (int) Math.round(radius * scale);
+    }
+
+    /**
+     * Rows above and below (and columns either side) an output pixel depends on
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    public ArgbImage apply(ArgbImage source) {
+        int[] result = new int[source.getPixelCount()];
+        apply(source.getPixels(), result, source.getWidth(), source.getHeight());
+        return new ArgbImage(source.getWidth(), source.getHeight(), result);
+    }
+
+    /**
+     * Filter the whole image. Unlike {@link PixelStage} this cannot run in place, every band
+     * reads source rows outside its own range.
+     */
+    public void apply(int[] src, int[] dst, int width, int height) {
+        if (src == dst) {
+            throw new IllegalArgumentException("Neighbourhood filters cannot write to their source");
+        }
+        if (kind == Kind.COPY) {
+            System.arraycopy(src, 0, dst, 0, width * height);
+            return;
+        }
+        ParallelExecutor.forEachBand(width, height, MIN_BAND_RADII * radius, (fromRow, toRow) -> {
+            if (kind == Kind.SOBEL) {
+                sobel(src, dst, width, height, fromRow, toRow);
+            } else {
+                boxBlur(src, dst, width, height, fromRow, toRow);
+                if (kind == Kind.SHARPEN) {
+                    unsharpMask(src, dst, fromRow * width, toRow * width);
+                }
+            }
+        });
+    }
+
+    private void boxBlur(int[] src, int[] dst, int width, int height, int fromRow, int toRow) {
+        int window = 2 * radius + 1;
+        int scale = ((1 << SHIFT) + window / 2) / window;
+        int ringRows = window + 1;
+        int[] ring = new int[ringRows * width];
+        // Column sums of the horizontal means over the vertical window, per channel
+        int[] a = new int[width];
+        int[] r = new int[width];
+        int[] g = new int[width];
+        int[] b = new int[width];
+
+        for (int v = fromRow - radius; v <= fromRow + radius; v++) {
+            int slot = ringSlot(v, fromRow, ringRows) * width;
+            horizontalMean(src, clampRow(v, height) * width, width, scale, ring, slot);
+            addRow(ring, slot, a, r, g, b, width, 1);
+        }
+        for (int y = fromRow; y < toRow; y++) {
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                dst[out + x] = mean(a[x], scale) << 24 | mean(r[x], scale) << 16
+                    | mean(g[x], scale) << 8 | mean(b[x], scale);
+            }
+            if (y + 1 < toRow) {
+                int entering = y + radius + 1;
+                int enteringSlot = ringSlot(entering, fromRow, ringRows) * width;
+                horizontalMean(src, clampRow(entering, height) * width, width, scale, ring, enteringSlot);
+                addRow(ring, enteringSlot, a, r, g, b, width, 1);
+                addRow(ring, ringSlot(y - radius, fromRow, ringRows) * width, a, r, g, b, width, -1);
+            }
+        }
+    }
+
+    /**
+     * Running mean of one row, written packed to out[outOffset...]
+     */
+    private void horizontalMean(int[] src, int row, int width, int scale, int[] out, int outOffset) {
+        int last = width - 1;
+        int sa = 0, sr = 0, sg = 0, sb = 0;
+        for (int i = -radius; i <= radius; i++) {
+            int p = src[row + Math.min(Math.max(i, 0), last)];
+            sa += p >>> 24;
+            sr += (p >> 16) & 0xFF;
+            sg += (p >> 8) & 0xFF;
+            sb += p & 0xFF;
+        }
+        for (int x = 0; x < width; x++) {
+            out[outOffset + x] = mean(sa, scale) << 24 | mean(sr, scale) << 16 | mean(sg, scale) << 8 | mean(sb, scale);
+            int entering = src[row + Math.min(x + radius + 1, last)];
+            int leaving = src[row + Math.max(x - radius, 0)];
+            sa += (entering >>> 24) - (leaving >>> 24);
+            sr += ((entering >> 16) & 0xFF) - ((leaving >> 16) & 0xFF);
+            sg += ((entering >> 8) & 0xFF) - ((leaving >> 8) & 0xFF);
+            sb += (entering & 0xFF) - (leaving & 0xFF);
+        }
+    }
+
+    private static void addRow(int[] ring, int slot, int[] a, int[] r, int[] g, int[] b, int width, int sign) {
+        for (int x = 0; x < width; x++) {
+            int p = ring[slot + x];
+            a[x] += sign * (p >>> 24);
+            r[x] += sign * ((p >> 16) & 0xFF);
+            g[x] += sign * ((p >> 8) & 0xFF);
+            b[x] += sign * (p & 0xFF);
+        }
+    }
+
+    /**
+     * dst holds the blur on entry, the sharpened pixels on return; alpha is kept from the source
+     */
+    private void unsharpMask(int[] src, int[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int p = src[i];
+            int blurred = dst[i];
+            dst[i] = (p & 0xFF000000)
+                | sharpen((p >> 16) & 0xFF, (blurred >> 16) & 0xFF) << 16
+                | sharpen((p >> 8) & 0xFF, (blurred >> 8) & 0xFF) << 8
+                | sharpen(p & 0xFF, blurred & 0xFF);
+        }
+    }
+
+    private int sharpen(int c, int blurred) {
+        return clamp(c + ((amount * (c - blurred) + 128) >> 8));
+    }
+
+    /**
+     * Sobel as two separable passes: Gx smooths [1 2 1] vertically then differences horizontally,
+     * Gy differences vertically then smooths horizontally
+     */
+    private static void sobel(int[] src, int[] dst, int width, int height, int fromRow, int toRow) {
+        int[] luma = new int[3 * width];
+        int[] smooth = new int[width];
+        int[] diff = new int[width];
+        int last = width - 1;
+
+        lumaRow(src, clampRow(fromRow - 1, height) * width, luma, ringSlot(fromRow - 1, fromRow, 3) * width, width);
+        lumaRow(src, fromRow * width, luma, ringSlot(fromRow, fromRow, 3) * width, width);
+        for (int y = fromRow; y < toRow; y++) {
+            lumaRow(src, clampRow(y + 1, height) * width, luma, ringSlot(y + 1, fromRow, 3) * width, width);
+            int above = ringSlot(y - 1, fromRow, 3) * width;
+            int centre = ringSlot(y, fromRow, 3) * width;
+            int below = ringSlot(y + 1, fromRow, 3) * width;
+            for (int x = 0; x < width; x++) {
+                smooth[x] = luma[above + x] + 2 * luma[centre + x] + luma[below + x];
+                diff[x] = luma[below + x] - luma[above + x];
+            }
+            int out = y * width;
+            for (int x = 0; x < width; x++) {
+                int left = Math.max(x - 1, 0);
+                int right = Math.min(x + 1, last);
+                int gx = smooth[right] - smooth[left];
+                int gy = diff[left] + 2 * diff[x] + diff[right];
+                int magnitude = Math.min(255, (int) Math.sqrt(gx * gx + gy * gy));
+                dst[out + x] = (src[out + x] & 0xFF000000) | magnitude << 16 | magnitude << 8 | magnitude;
+            }
+        }
+    }
+
+    private static void lumaRow(int[] src, int row, int[] out, int outOffset, int width) {
+        for (int x = 0; x < width; x++) {
+            int p = src[row + x];
+            // Same Rec.601 weights as Histogram
+            out[outOffset + x] = (((p >> 16) & 0xFF) * 77 + ((p >> 8) & 0xFF) * 150 + (p & 0xFF) * 29) >> 8;
+        }
+    }
+
+    /**
+     * Ring slot of virtual row v for a band whose ring starts just above fromRow
+     */
+    private static int ringSlot(int v, int fromRow, int ringRows) {
+        return Math.floorMod(v - fromRow, ringRows);
+    }
+
+    private static int clampRow(int y, int height) {
+        return Math.min(Math.max(y, 0), height - 1);
+    }
+
+    private static int mean(int sum, int scale) {
+        return Math.min(255, (sum * scale + HALF) >>> SHIFT);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(255, value);
+    }
+}
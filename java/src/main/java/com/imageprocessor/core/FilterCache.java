@@ -0,0 +1,180 @@
+package com.imageprocessor.core;
+
+import javafx.scene.image.Image;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of filtered images keyed by source identity, filter, parameter values, radius
+ * scale and {@link LinearLight} mode,
+ * evicting least recently used entries once the total pixel bytes exceed the budget
+ */
+public class FilterCache {
+
+    public static final long DEFAULT_MAX_BYTES = Long.getLong("imageprocessor.cache.mb", 256) * 1024 * 1024;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Image> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Source compared by identity, so two equal-looking images never share results
+     */
+    private record Key(Image source, FilterParams params, double scale, boolean linearLight) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key
+                && key.source == source
+                && key.params.equals(params)
+                && key.scale == scale
+                && key.linearLight == linearLight;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = (System.identityHashCode(source) * 31 + params.hashCode()) * 31 + Double.hashCode(scale);
+            return hash * 2 + (linearLight ? 1 : 0);
+        }
+    }
+
+    public FilterCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public FilterCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Cached result for the filter with default parameters, computing and caching it on a miss
+     */
+    public Image getOrApply(Image source, FilterType filterType) {
+        return getOrApply(source, FilterParams.defaults(filterType));
+    }
+
+    /**
+     * Cached result for the filter and parameter values, computing and caching it on a miss
+     */
+    public Image getOrApply(Image source, FilterParams params) {
+        return getOrApply(source, params, 1);
+    }
+
+    /**
+     * Cached result for a proxy scale times the width of the image the radii are meant for,
+     * see {@link ImageProcessor#applyFilter(Image, FilterParams, double)}
+     */
+    public Image getOrApply(Image source, FilterParams params, double scale) {
+        return getOrApply(source, params, scale, LinearLight.isEnabled());
+    }
+
+    /**
+     * Cached result in the given {@link LinearLight} mode, so a result still being computed
+     * when the mode changes is stored under the mode it was computed in
+     */
+    public Image getOrApply(Image source, FilterParams params, double scale, boolean linearLight) {
+        if (source == null || params.getFilterType() == FilterType.ORIGINAL) {
+            return source;
+        }
+        Image cached = get(source, params, scale, linearLight);
+        if (cached != null) {
+            return cached;
+        }
+        Image result = ImageProcessor.applyFilter(source, params, scale, linearLight);
+        put(source, params, scale, linearLight, result);
+        return result;
+    }
+
+    /**
+     * Cached result or null, counting the lookup as a hit or miss
+     */
+    public Image get(Image source, FilterParams params) {
+        return get(source, params, 1, LinearLight.isEnabled());
+    }
+
+    public Image get(Image source, FilterParams params, double scale, boolean linearLight) {
+        Image image;
+        synchronized (this) {
+            image = entries.get(new Key(source, params, scale, linearLight));
+        }
+        (image != null ? hits : misses).incrementAndGet();
+        return image;
+    }
+
+    /**
+     * Whether a result is cached, without touching recency or counters
+     */
+    public synchronized boolean contains(Image source, FilterParams params, double scale, boolean linearLight) {
+        return entries.containsKey(new Key(source, params, scale, linearLight));
+    }
+
+    public void put(Image source, FilterParams params, Image result) {
+        put(source, params, 1, LinearLight.isEnabled(), result);
+    }
+
+    public synchronized void put(Image source, FilterParams params, double scale, boolean linearLight, Image result) {
+        long bytes = sizeOf(result);
+        if (bytes > maxBytes) {
+            return;
+        }
+        Image previous = entries.put(new Key(source, params, scale, linearLight), result);
+        if (previous != null) {
+            sizeBytes -= sizeOf(previous);
+        }
+        sizeBytes += bytes;
+
+        Iterator<Map.Entry<Key, Image>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            sizeBytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Drop every result computed from the given source image
+     */
+    public synchronized void invalidate(Image source) {
+        Iterator<Map.Entry<Key, Image>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Image> entry = iterator.next();
+            if (entry.getKey().source() == source) {
+                sizeBytes -= sizeOf(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    private static long sizeOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+}
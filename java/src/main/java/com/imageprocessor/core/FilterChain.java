@@ -0,0 +1,336 @@
+package com.imageprocessor.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered list of filters fused into as few stages as possible and applied in a single pass.
+ * Adjacent lookup-table filters merge into one table, adjacent colour matrices into one matrix.
+ * Content-adaptive steps run once the chain is bound to an image with {@link #bind}, and
+ * neighbourhood steps split the chain into point-wise runs around a {@link Convolution}.
+ */
+public final class FilterChain {
+
+    /** Pixels per block; every stage runs over a block while it is still in L1/L2 cache */
+    private static final int BLOCK_PIXELS = 4096;
+
+    private final List<FilterParams> steps;
+    private final List<PixelStage> stages;
+    private final Histogram[] analyses;
+    private final double scale;
+    private final boolean linearLight;
+
+    /**
+     * Chain in the current {@link LinearLight} mode, which it keeps when the mode changes later
+     */
+    private FilterChain(List<FilterParams> steps) {
+        this(steps, null, 1, LinearLight.isEnabled());
+    }
+
+    /**
+     * @param analyses    histogram of the input to each content-adaptive step, by step index
+     * @param scale       width of the images filtered over that of the image the radii are meant for
+     * @param linearLight whether colour matrices mix in linear light
+     */
+    private FilterChain(List<FilterParams> steps, Histogram[] analyses, double scale, boolean linearLight) {
+        this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+        this.analyses = analyses;
+        this.scale = scale;
+        this.linearLight = linearLight;
+        this.stages = Collections.unmodifiableList(compile(steps, analyses, scale, linearLight));
+    }
+
+    public static FilterChain of(FilterType... filters) {
+        return of(Arrays.asList(filters));
+    }
+
+    public static FilterChain of(List<FilterType> filters) {
+        return new FilterChain(filters.stream().map(FilterParams::defaults).toList());
+    }
+
+    /**
+     * Chain of filters with explicit parameter values
+     */
+    public static FilterChain ofParams(List<FilterParams> steps) {
+        return new FilterChain(steps);
+    }
+
+    public static FilterChain of(FilterParams params) {
+        return new FilterChain(List.of(params));
+    }
+
+    /**
+     * The same chain for images scale times the width of the ones it was built for, such as a
+     * preview proxy, with neighbourhood radii scaled to match; see {@link Convolution#forParams(FilterParams, double)}
+     */
+    public FilterChain scaled(double scale) {
+        return scale == 1 ? this : new FilterChain(steps, analyses, this.scale * scale, linearLight);
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    /**
+     * Whether colour matrices mix in linear light, fixed when the chain was built
+     */
+    public boolean isLinearLight() {
+        return linearLight;
+    }
+
+    public List<FilterType> getFilters() {
+        return steps.stream().map(FilterParams::getFilterType).toList();
+    }
+
+    public List<FilterParams> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Fused stages that will run for every pixel
+     */
+    public List<PixelStage> getStages() {
+        return stages;
+    }
+
+    public boolean isIdentity() {
+        return stages.isEmpty();
+    }
+
+    /**
+     * Whether any step adapts to the image content
+     */
+    public boolean isContentAdaptive() {
+        return steps.stream().anyMatch(step -> step.getFilterType().isContentAdaptive());
+    }
+
+    /**
+     * Whether every stage maps each pixel on its own, so {@link #apply} can run over any range
+     */
+    public boolean isPointwise() {
+        return stages.stream().noneMatch(stage -> stage instanceof NeighbourhoodStage);
+    }
+
+    /**
+     * Rows of context above and below a strip that neighbourhood steps need to filter it exactly
+     */
+    public int getHaloRows() {
+        int rows = 0;
+        for (PixelStage stage : stages) {
+            if (stage instanceof NeighbourhoodStage neighbourhood) {
+                rows += neighbourhood.convolution().getRadius();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Whether content-adaptive steps still wait for {@link #bind}
+     */
+    boolean needsBinding() {
+        return analyses == null && isContentAdaptive();
+    }
+
+    /**
+     * Chain with its content-adaptive steps fitted to this image. Each adaptive step analyses
+     * the image as it arrives at that step; when nothing changes the pixels before it, the
+     * source histogram is used (computed here if null).
+     */
+    public FilterChain bind(ArgbImage source, Histogram sourceHistogram) {
+        if (!needsBinding()) {
+            return this;
+        }
+        Histogram[] analyses = new Histogram[steps.size()];
+        for (int i = 0; i < steps.size(); i++) {
+            if (!steps.get(i).getFilterType().isContentAdaptive()) {
+                continue;
+            }
+            FilterChain prefix = new FilterChain(steps.subList(0, i), Arrays.copyOf(analyses, i), scale, linearLight);
+            if (prefix.isIdentity()) {
+                if (sourceHistogram == null) {
+                    sourceHistogram = Histogram.of(source);
+                }
+                analyses[i] = sourceHistogram;
+            } else {
+                analyses[i] = Histogram.of(prefix.render(source));
+            }
+        }
+        return new FilterChain(steps, analyses, scale, linearLight);
+    }
+
+    /**
+     * Filter the whole image on the filter pool into a new image, binding content-adaptive
+     * steps first if needed. Works for every chain, including those with neighbourhood steps.
+     */
+    public ArgbImage render(ArgbImage source) {
+        FilterChain chain = bind(source, null);
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] current = source.getPixels();
+        // Buffers owned by this render, point-wise runs write in place and convolutions ping-pong
+        boolean owned = false;
+        int[] spare = null;
+        List<PixelStage> run = new ArrayList<>();
+        for (PixelStage stage : chain.stages) {
+            if (!(stage instanceof NeighbourhoodStage neighbourhood)) {
+                run.add(stage);
+                continue;
+            }
+            if (!run.isEmpty()) {
+                int[] target = owned ? current : new int[current.length];
+                applyBanded(run, current, target, width, height);
+                current = target;
+                owned = true;
+                run.clear();
+            }
+            int[] target = spare != null ? spare : new int[current.length];
+            neighbourhood.convolution().apply(current, target, width, height);
+            spare = owned ? current : null;
+            current = target;
+            owned = true;
+        }
+        if (!run.isEmpty() || !owned) {
+            int[] target = owned ? current : new int[current.length];
+            applyBanded(run, current, target, width, height);
+            current = target;
+        }
+        return new ArgbImage(width, height, current);
+    }
+
+    /**
+     * Filter the image without frame-sized allocations, for callers that reuse frame buffers.
+     * Point-wise runs overwrite the image pixels and neighbourhood steps alternate between them
+     * and scratch. Each neighbourhood step still allocates its sliding window of a few rows per
+     * band, and binding a content-adaptive step that follows other steps renders them into a new image.
+     *
+     * @param scratch buffer of at least the image's pixel count, only touched by neighbourhood steps
+     * @return the array holding the result, either the image pixels or scratch
+     */
+    public int[] renderInPlace(ArgbImage image, int[] scratch) {
+        FilterChain chain = bind(image, null);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] current = image.getPixels();
+        int[] spare = scratch;
+        List<PixelStage> run = new ArrayList<>();
+        for (PixelStage stage : chain.stages) {
+            if (!(stage instanceof NeighbourhoodStage neighbourhood)) {
+                run.add(stage);
+                continue;
+            }
+            if (!run.isEmpty()) {
+                applyBanded(run, current, current, width, height);
+                run.clear();
+            }
+            neighbourhood.convolution().apply(current, spare, width, height);
+            int[] filtered = spare;
+            spare = current;
+            current = filtered;
+        }
+        if (!run.isEmpty()) {
+            applyBanded(run, current, current, width, height);
+        }
+        return current;
+    }
+
+    private static void applyBanded(List<PixelStage> run, int[] src, int[] dst, int width, int height) {
+        ParallelExecutor.forEachBand(width, height, (fromRow, toRow) ->
+            applyBlocks(run, src, dst, fromRow * width, toRow * width));
+    }
+
+    private static List<PixelStage> compile(List<FilterParams> steps, Histogram[] analyses, double scale,
+                                           boolean linearLight) {
+        List<PixelStage> compiled = new ArrayList<>();
+        for (int i = 0; i < steps.size(); i++) {
+            FilterParams params = steps.get(i);
+            FilterType filterType = params.getFilterType();
+            if (filterType == FilterType.ORIGINAL) {
+                continue;
+            }
+            PixelStage last = compiled.isEmpty() ? null : compiled.get(compiled.size() - 1);
+
+            if (filterType.isNeighbourhood()) {
+                compiled.add(new NeighbourhoodStage(Convolution.forParams(params, scale)));
+            } else if (filterType.isContentAdaptive() && (analyses == null || analyses[i] == null)) {
+                compiled.add((src, dst, from, to) -> {
+                    throw new IllegalStateException(filterType.getDisplayName() + " step is not bound to an image");
+                });
+            } else if (LookupTables.isSeparable(filterType) || filterType.isContentAdaptive()) {
+                LookupTable table = LookupTables.forParams(params, analyses == null ? null : analyses[i]);
+                if (last instanceof LookupTable lastTable) {
+                    compiled.set(compiled.size() - 1, lastTable.andThen(table));
+                } else {
+                    compiled.add(table);
+                }
+            } else if (ColorMatrix.isLinear(filterType)) {
+                ColorMatrix matrix = ColorMatrix.forFilter(filterType, linearLight);
+                if (last instanceof ColorMatrix lastMatrix && lastMatrix.isRangePreserving()) {
+                    compiled.set(compiled.size() - 1, lastMatrix.andThen(matrix));
+                } else {
+                    compiled.add(matrix);
+                }
+            } else {
+                compiled.add((src, dst, from, to) -> PixelKernels.apply(params, src, dst, from, to));
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Apply every stage to pixels in range [from, to), block by block, so each pixel
+     * is read from and written to memory once regardless of chain length.
+     * Only for {@link #isPointwise() point-wise} chains; others go through {@link #render}.
+     */
+    public void apply(int[] src, int[] dst, int from, int to) {
+        applyBlocks(stages, src, dst, from, to);
+    }
+
+    private static void applyBlocks(List<PixelStage> stages, int[] src, int[] dst, int from, int to) {
+        if (stages.isEmpty()) {
+            if (src != dst) {
+                System.arraycopy(src, from, dst, from, to - from);
+            }
+            return;
+        }
+        int stageCount = stages.size();
+        for (int blockStart = from; blockStart < to; blockStart += BLOCK_PIXELS) {
+            int blockEnd = Math.min(blockStart + BLOCK_PIXELS, to);
+            stages.get(0).apply(src, dst, blockStart, blockEnd);
+            for (int s = 1; s < stageCount; s++) {
+                stages.get(s).apply(dst, dst, blockStart, blockEnd);
+            }
+        }
+    }
+
+    /**
+     * Short label such as "Grayscale+Sepia"
+     */
+    public String getName() {
+        StringBuilder name = new StringBuilder();
+        for (FilterParams step : steps) {
+            if (name.length() > 0) {
+                name.append('+');
+            }
+            name.append(step.getFilterType().getDisplayName());
+        }
+        return name.length() > 0 ? name.toString() : FilterType.ORIGINAL.getDisplayName();
+    }
+
+    /**
+     * Placeholder for a neighbourhood step; it needs whole rows around each pixel, so
+     * {@link #render} runs it between the point-wise runs instead of block by block
+     */
+    private record NeighbourhoodStage(Convolution convolution) implements PixelStage {
+        @Override
+        public void apply(int[] src, int[] dst, int from, int to) {
+            throw new IllegalStateException("Neighbourhood filters need the whole image, use FilterChain.render");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FilterChain" + steps + " (" + stages.size() + " fused stages)";
+    }
+}
@@ -0,0 +1,184 @@
+package com.imageprocessor.core;
+
+import com.imageprocessor.metrics.PerformanceMetrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Renders several filters of the same source in one pass. The source is walked block by block
+ * and every filter runs on a block while it is still in cache, so the source is streamed from
+ * memory once instead of once per filter. Neighbourhood filters need whole rows around each
+ * block and are rendered separately by {@link #applyNeighbourhoods}.
+ */
+public final class FilterFanOut {
+
+    /** Source block shared by all outputs, small enough to stay in L1/L2 cache */
+    private static final int BLOCK_PIXELS = 4096;
+
+    private final List<FilterParams> outputs;
+    private final FilterChain[] chains;
+
+    private FilterFanOut(List<FilterParams> outputs) {
+        if (outputs.isEmpty()) {
+            throw new IllegalArgumentException("Fan-out needs at least one filter");
+        }
+        this.outputs = List.copyOf(outputs);
+        this.chains = new FilterChain[outputs.size()];
+        for (int i = 0; i < chains.length; i++) {
+            chains[i] = FilterChain.of(outputs.get(i));
+        }
+    }
+
+    private FilterFanOut(List<FilterParams> outputs, FilterChain[] chains) {
+        this.outputs = outputs;
+        this.chains = chains;
+    }
+
+    public static FilterFanOut of(List<FilterParams> outputs) {
+        return new FilterFanOut(outputs);
+    }
+
+    public static FilterFanOut ofTypes(List<FilterType> filterTypes) {
+        List<FilterParams> outputs = new ArrayList<>();
+        for (FilterType filterType : filterTypes) {
+            outputs.add(FilterParams.defaults(filterType));
+        }
+        return new FilterFanOut(outputs);
+    }
+
+    /**
+     * Every filter with default parameters, in {@link FilterType} order
+     */
+    public static FilterFanOut all() {
+        return ofTypes(List.of(FilterType.values()));
+    }
+
+    /**
+     * The same fan-out for a source scale times the width of the images it was built for,
+     * see {@link FilterChain#scaled}
+     */
+    public FilterFanOut scaled(double scale) {
+        FilterChain[] scaled = new FilterChain[chains.length];
+        for (int i = 0; i < scaled.length; i++) {
+            scaled[i] = chains[i].scaled(scale);
+        }
+        return new FilterFanOut(outputs, scaled);
+    }
+
+    public List<FilterParams> getOutputs() {
+        return outputs;
+    }
+
+    public int size() {
+        return chains.length;
+    }
+
+    /**
+     * Write output i of pixels in range [from, to) to dst[i]. Outputs whose array is the source
+     * itself are left alone, which is how {@link #render} skips identity filters, and so are
+     * outputs that are not point-wise.
+     */
+    public void apply(int[] src, int[][] dst, int from, int to) {
+        for (int blockStart = from; blockStart < to; blockStart += BLOCK_PIXELS) {
+            int blockEnd = Math.min(blockStart + BLOCK_PIXELS, to);
+            for (int i = 0; i < chains.length; i++) {
+                if (dst[i] != src && chains[i].isPointwise()) {
+                    chains[i].apply(src, dst[i], blockStart, blockEnd);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill in every output that {@link #apply} leaves out because it reads neighbouring pixels,
+     * each rendered over the whole source on the filter pool into its own new array
+     */
+    public void applyNeighbourhoods(ArgbImage source, int[][] dst) {
+        for (int i = 0; i < chains.length; i++) {
+            if (!chains[i].isPointwise()) {
+                dst[i] = chains[i].render(source).getPixels();
+            }
+        }
+    }
+
+    /**
+     * Fan-out with content-adaptive outputs fitted to this source; the histogram is computed
+     * once for all of them when null
+     */
+    public FilterFanOut bind(ArgbImage source, Histogram sourceHistogram) {
+        FilterChain[] bound = chains.clone();
+        for (int i = 0; i < bound.length; i++) {
+            if (bound[i].needsBinding()) {
+                if (sourceHistogram == null) {
+                    sourceHistogram = Histogram.of(source);
+                }
+                bound[i] = bound[i].bind(source, sourceHistogram);
+            }
+        }
+        return new FilterFanOut(outputs, bound);
+    }
+
+    /**
+     * Output arrays for {@link #apply}: identity outputs such as Original share the source
+     * array and are not copied, other point-wise outputs get a new array, and the slots of
+     * neighbourhood outputs stay null until {@link #applyNeighbourhoods} fills them
+     */
+    public int[][] allocateOutputs(int[] src) {
+        int[][] dst = new int[chains.length][];
+        for (int i = 0; i < dst.length; i++) {
+            if (chains[i].isIdentity()) {
+                dst[i] = src;
+            } else if (chains[i].isPointwise()) {
+                dst[i] = new int[src.length];
+            }
+        }
+        return dst;
+    }
+
+    /**
+     * Render the outputs in groups of at most maxLive, handing each one to the consumer with its
+     * index as soon as its group is done, so no more than maxLive outputs are in memory at once.
+     * Each group reads the source once; content-adaptive outputs share one histogram.
+     */
+    public void render(ArgbImage source, int maxLive, ObjIntConsumer<ArgbImage> consumer) {
+        if (maxLive < 1) {
+            throw new IllegalArgumentException("maxLive must be at least 1");
+        }
+        FilterFanOut bound = bind(source, null);
+        for (int from = 0; from < chains.length; from += maxLive) {
+            int to = Math.min(from + maxLive, chains.length);
+            FilterFanOut group = new FilterFanOut(outputs.subList(from, to), Arrays.copyOfRange(bound.chains, from, to));
+            ArgbImage[] results = group.render(source);
+            for (int i = 0; i < results.length; i++) {
+                consumer.accept(results[i], from + i);
+                // Let the output go before the next one is encoded
+                results[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Render every output of the source on the filter pool, one image per filter in order
+     */
+    public ArgbImage[] render(ArgbImage source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        PerformanceMetrics.Measurement measurement =
+            PerformanceMetrics.start(PerformanceMetrics.FAN_OUT, chains.length + " filters");
+        int[] src = source.getPixels();
+        int[][] dst = allocateOutputs(src);
+        FilterFanOut bound = bind(source, null);
+        ParallelExecutor.forEachBand(width, height, (fromRow, toRow) ->
+            bound.apply(src, dst, fromRow * width, toRow * width));
+        bound.applyNeighbourhoods(source, dst);
+        ArgbImage[] results = new ArgbImage[chains.length];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new ArgbImage(width, height, dst[i]);
+        }
+        measurement.stop(src.length);
+        return results;
+    }
+}
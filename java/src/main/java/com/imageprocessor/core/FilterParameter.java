@@ -0,0 +1,11 @@
+package com.imageprocessor.core;
+
+/**
+ * Adjustable numeric parameter of a filter
+ */
+public record FilterParameter(String name, String label, double min, double max, double defaultValue) {
+
+    public double clamp(double value) {
+        return Math.min(Math.max(value, min), max);
+    }
+}
@@ -0,0 +1,94 @@
+package com.imageprocessor.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable filter together with values for each of its parameters
+ */
+public final class FilterParams {
+
+    private final FilterType filterType;
+    private final double[] values;
+
+    private FilterParams(FilterType filterType, double[] values) {
+        this.filterType = filterType;
+        this.values = values;
+    }
+
+    public static FilterParams defaults(FilterType filterType) {
+        List<FilterParameter> parameters = filterType.getParameters();
+        double[] values = new double[parameters.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = parameters.get(i).defaultValue();
+        }
+        return new FilterParams(filterType, values);
+    }
+
+    public FilterType getFilterType() {
+        return filterType;
+    }
+
+    public double get(int index) {
+        return values[index];
+    }
+
+    public double get(String name) {
+        return values[indexOf(name)];
+    }
+
+    /**
+     * Copy with one parameter changed, clamped to its range
+     */
+    public FilterParams with(int index, double value) {
+        double[] copy = values.clone();
+        copy[index] = filterType.getParameters().get(index).clamp(value);
+        return new FilterParams(filterType, copy);
+    }
+
+    public FilterParams with(String name, double value) {
+        return with(indexOf(name), value);
+    }
+
+    public boolean isDefault() {
+        return equals(defaults(filterType));
+    }
+
+    private int indexOf(String name) {
+        List<FilterParameter> parameters = filterType.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(filterType + " has no parameter " + name);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof FilterParams params
+            && params.filterType == filterType
+            && Arrays.equals(params.values, values);
+    }
+
+    @Override
+    public int hashCode() {
+        return filterType.hashCode() * 31 + Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        if (values.length == 0) {
+            return filterType.getDisplayName();
+        }
+        StringBuilder text = new StringBuilder(filterType.getDisplayName()).append('(');
+        List<FilterParameter> parameters = filterType.getParameters();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(parameters.get(i).name()).append('=').append(String.format("%.2f", values[i]));
+        }
+        return text.append(')').toString();
+    }
+}
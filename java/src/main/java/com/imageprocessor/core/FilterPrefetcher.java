@@ -0,0 +1,121 @@
+package com.imageprocessor.core;
+
+import javafx.scene.image.Image;
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Computes the next filter in the background on a low-priority thread and stores it in a
+ * {@link FilterCache}, so the following step can be shown without waiting. Each owner
+ * (for example a display panel) has at most one prefetch pending at a time.
+ */
+public class FilterPrefetcher {
+
+    private final FilterCache cache;
+    private final ExecutorService executor;
+    private final Map<Object, Prefetch> pending = new ConcurrentHashMap<>();
+
+    public FilterPrefetcher(FilterCache cache) {
+        this.cache = cache;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "filter-prefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Start computing filter for source unless it is already cached, replacing the owner's previous prefetch
+     *
+     * @param scale width of source over that of the image the filter radii are meant for
+     */
+    public void prefetch(Object owner, Image source, FilterType filterType, double scale) {
+        boolean linearLight = LinearLight.isEnabled();
+        if (source == null || filterType == FilterType.ORIGINAL
+                || cache.contains(source, FilterParams.defaults(filterType), scale, linearLight)) {
+            return;
+        }
+        Prefetch prefetch = new Prefetch(source, filterType, scale, linearLight);
+        Prefetch previous = pending.put(owner, prefetch);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+        executor.execute(prefetch);
+    }
+
+    /**
+     * Result for the filter, joining the owner's matching prefetch if one is in flight
+     */
+    public Image obtain(Object owner, Image source, FilterType filterType, double scale) throws InterruptedException {
+        boolean linearLight = LinearLight.isEnabled();
+        Prefetch prefetch = pending.get(owner);
+        if (prefetch != null && prefetch.matches(source, filterType, scale, linearLight)) {
+            try {
+                Image image = prefetch.get();
+                if (image != null) {
+                    return image;
+                }
+            } catch (CancellationException | ExecutionException e) {
+                // Fall back to computing it on the caller's thread
+            }
+        }
+        return cache.getOrApply(source, FilterParams.defaults(filterType), scale, linearLight);
+    }
+
+    public void cancel(Object owner) {
+        Prefetch prefetch = pending.remove(owner);
+        if (prefetch != null) {
+            prefetch.cancel(true);
+        }
+    }
+
+    public void cancelAll() {
+        pending.keySet().forEach(this::cancel);
+    }
+
+    private final class Prefetch extends FutureTask<Image> {
+        private final Image source;
+        private final FilterType filterType;
+        private final double scale;
+        private final boolean linearLight;
+
+        Prefetch(Image source, FilterType filterType, double scale, boolean linearLight) {
+            super(() -> null);
+            this.source = source;
+            this.filterType = filterType;
+            this.scale = scale;
+            this.linearLight = linearLight;
+        }
+
+        boolean matches(Image image, FilterType type, double radiusScale, boolean linear) {
+            return source == image && filterType == type && scale == radiusScale && linearLight == linear;
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                FilterParams params = FilterParams.defaults(filterType);
+                Image result = ImageProcessor.applyFilter(source, params, scale, linearLight);
+                // Checked under the cache lock so a cancel followed by invalidate never leaves a stale entry
+                synchronized (cache) {
+                    if (!isCancelled()) {
+                        cache.put(source, params, scale, linearLight, result);
+                    }
+                }
+                set(result);
+            } catch (Throwable t) {
+                setException(t);
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.imageprocessor.core;
 
+import java.util.List;
+
 /**
  * Enum for available image filters
  */
@@ -7,16 +9,29 @@ public enum FilterType {
     ORIGINAL("Original", "No modification"),
     GRAYSCALE("Grayscale", "Black & white conversion"),
     INVERT("Invert", "Negative color effect"),
-    BRIGHTNESS("Brightness", "Increase luminosity"),
-    CONTRAST("Contrast", "Enhance light/dark difference"),
-    SEPIA("Sepia", "Vintage warm tone");
+    BRIGHTNESS("Brightness", "Increase luminosity",
+        new FilterParameter("factor", "Factor", 0.0, 3.0, 1.2)),
+    CONTRAST("Contrast", "Enhance light/dark difference",
+        new FilterParameter("factor", "Factor", 0.0, 3.0, 1.5),
+        new FilterParameter("midpoint", "Midpoint", 0.0, 1.0, 0.5)),
+    SEPIA("Sepia", "Vintage warm tone"),
+    AUTO_LEVELS("Auto Levels", "Stretch brightness to the image's own range",
+        new FilterParameter("clip", "Clip %", 0.0, 5.0, 0.5)),
+    BLUR("Blur", "Soften detail with a box blur",
+        new FilterParameter("radius", "Radius", 1.0, 20.0, 3.0)),
+    SHARPEN("Sharpen", "Crisper detail with an unsharp mask",
+        new FilterParameter("amount", "Amount", 0.0, 3.0, 1.0),
+        new FilterParameter("radius", "Radius", 1.0, 10.0, 1.0)),
+    EDGE_DETECT("Edge Detect", "Sobel edge outline");
 
     private final String displayName;
     private final String description;
+    private final List<FilterParameter> parameters;
 
-    FilterType(String displayName, String description) {
+    FilterType(String displayName, String description, FilterParameter... parameters) {
         this.displayName = displayName;
         this.description = description;
+        this.parameters = List.of(parameters);
     }
 
     public String getDisplayName() {
@@ -27,6 +42,39 @@ public enum FilterType {
         return description;
     }
 
+    /**
+     * Adjustable parameters, empty for fixed filters
+     */
+    public List<FilterParameter> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Whether the filter adapts to the image content and needs its {@link Histogram}
+     */
+    public boolean isContentAdaptive() {
+        return this == AUTO_LEVELS;
+    }
+
+    /**
+     * Whether each output pixel depends on its neighbours, so the filter runs through {@link Convolution}
+     */
+    public boolean isNeighbourhood() {
+        return this == BLUR || this == SHARPEN || this == EDGE_DETECT;
+    }
+
+    /**
+     * Look up a filter by enum name or display name, ignoring case
+     */
+    public static FilterType fromName(String name) {
+        for (FilterType filterType : values()) {
+            if (filterType.name().equalsIgnoreCase(name) || filterType.displayName.equalsIgnoreCase(name)) {
+                return filterType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown filter: " + name);
+    }
+
     public static FilterType getNext(FilterType current) {
         int nextIndex = (current.ordinal() + 1) % values().length;
         return values()[nextIndex];
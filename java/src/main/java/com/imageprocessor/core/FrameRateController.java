@@ -0,0 +1,139 @@
+package com.imageprocessor.core;
+
+/**
+ * Paces an animation from measured render latency. Each frame is scheduled so frames start one
+ * target interval apart; when renders cannot keep up the proxy level rises (each level halves
+ * the resolution) and it falls again once there is enough headroom. Not thread-safe, meant to be
+ * driven from the UI thread.
+ */
+public class FrameRateController {
+
+    /** Default target, overridable with -Dimageprocessor.auto.fps */
+    public static final double DEFAULT_TARGET_FPS = Double.parseDouble(
+        System.getProperty("imageprocessor.auto.fps", "1"));
+
+    public static final int MAX_PROXY_LEVEL = 3;
+
+    /** Weight of the newest sample in the latency average */
+    private static final double SMOOTHING = 0.3;
+    /** Drop resolution when the average render uses more than this share of the frame interval */
+    private static final double DOWNGRADE_LOAD = 0.8;
+    /** Restore resolution when a 4x larger render would still fit comfortably */
+    private static final double UPGRADE_LOAD = 0.15;
+    /** Samples to collect at a level before changing it again */
+    private static final int SETTLE_FRAMES = 3;
+    private static final int FPS_WINDOW = 16;
+
+    private double targetFps;
+    private double averageLatencyNanos;
+    private long lastLatencyNanos;
+    private int samplesAtLevel;
+    private int proxyLevel;
+    private long frames;
+    private long droppedFrames;
+    private final long[] completions = new long[FPS_WINDOW];
+
+    public FrameRateController() {
+        this(DEFAULT_TARGET_FPS);
+    }
+
+    public FrameRateController(double targetFps) {
+        setTargetFps(targetFps);
+    }
+
+    public double getTargetFps() {
+        return targetFps;
+    }
+
+    public void setTargetFps(double targetFps) {
+        if (!(targetFps > 0)) {
+            throw new IllegalArgumentException("Target fps must be positive: " + targetFps);
+        }
+        this.targetFps = targetFps;
+        samplesAtLevel = 0;
+    }
+
+    public long getFrameIntervalNanos() {
+        return (long) (1_000_000_000L / targetFps);
+    }
+
+    /**
+     * Forget measurements, e.g. when the animation restarts or the image changes
+     */
+    public void reset() {
+        averageLatencyNanos = 0;
+        lastLatencyNanos = 0;
+        samplesAtLevel = 0;
+        proxyLevel = 0;
+        frames = 0;
+        droppedFrames = 0;
+    }
+
+    /**
+     * Record a frame that took this long from request to display
+     */
+    public void frameRendered(long latencyNanos) {
+        long interval = getFrameIntervalNanos();
+        lastLatencyNanos = latencyNanos;
+        averageLatencyNanos = samplesAtLevel == 0
+            ? latencyNanos
+            : averageLatencyNanos + SMOOTHING * (latencyNanos - averageLatencyNanos);
+        samplesAtLevel++;
+        if (latencyNanos > interval) {
+            // Frames whose slot passed while this one was rendering
+            droppedFrames += (latencyNanos - 1) / interval;
+        }
+        completions[(int) (frames % FPS_WINDOW)] = System.nanoTime();
+        frames++;
+
+        if (samplesAtLevel >= SETTLE_FRAMES) {
+            double load = averageLatencyNanos / interval;
+            if (load > DOWNGRADE_LOAD && proxyLevel < MAX_PROXY_LEVEL) {
+                proxyLevel++;
+                samplesAtLevel = 0;
+            } else if (load < UPGRADE_LOAD && proxyLevel > 0) {
+                proxyLevel--;
+                samplesAtLevel = 0;
+            }
+        }
+    }
+
+    /**
+     * Delay before requesting the next frame so frames start one interval apart
+     */
+    public long nextDelayMillis() {
+        return Math.max(0, (getFrameIntervalNanos() - lastLatencyNanos) / 1_000_000);
+    }
+
+    /**
+     * Resolution level to render the next frame at, 0 is full preview resolution
+     */
+    public int getProxyLevel() {
+        return proxyLevel;
+    }
+
+    /**
+     * Frame rate over the last few frames, 0 until two frames were shown
+     */
+    public double getAchievedFps() {
+        int count = (int) Math.min(frames, FPS_WINDOW);
+        if (count < 2) {
+            return 0;
+        }
+        long newest = completions[(int) ((frames - 1) % FPS_WINDOW)];
+        long oldest = completions[(int) ((frames - count) % FPS_WINDOW)];
+        return newest > oldest ? (count - 1) * 1e9 / (newest - oldest) : 0;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public double getAverageLatencyMillis() {
+        return averageLatencyNanos / 1e6;
+    }
+}
@@ -0,0 +1,95 @@
+package com.imageprocessor.core;
+
+/**
+ * Per-channel 256-bin histograms of an image (red, green, blue and Rec.601 luma)
+ */
+public final class Histogram {
+
+    public static final int RED = 0;
+    public static final int GREEN = 1;
+    public static final int BLUE = 2;
+    public static final int LUMA = 3;
+
+    private static final int BINS = 256;
+
+    /** Channel-major counts, channel * 256 + level */
+    private final long[] counts;
+    private final long total;
+
+    private Histogram(long[] counts, long total) {
+        this.counts = counts;
+        this.total = total;
+    }
+
+    /**
+     * Count the image's width x height pixels on the filter pool, ignoring any slack at the end of
+     * its array. Each band fills its own counters, which are merged once per band, so workers
+     * never contend on shared bins.
+     */
+    public static Histogram of(ArgbImage image) {
+        int width = image.getWidth();
+        int[] pixels = image.getPixels();
+        long[] merged = new long[4 * BINS];
+        ParallelExecutor.forEachBand(width, image.getHeight(), (fromRow, toRow) -> {
+            int[] local = new int[4 * BINS];
+            count(pixels, fromRow * width, toRow * width, local);
+            synchronized (merged) {
+                for (int i = 0; i < local.length; i++) {
+                    merged[i] += local[i];
+                }
+            }
+        });
+        return new Histogram(merged, image.getPixelCount());
+    }
+
+    private static void count(int[] pixels, int from, int to, int[] bins) {
+        for (int i = from; i < to; i++) {
+            int p = pixels[i];
+            int r = (p >> 16) & 0xFF;
+            int g = (p >> 8) & 0xFF;
+            int b = p & 0xFF;
+            bins[r]++;
+            bins[BINS + g]++;
+            bins[2 * BINS + b]++;
+            // 0.299, 0.587, 0.114 in 8-bit fixed point, weights sum to 256
+            bins[3 * BINS + ((r * 77 + g * 150 + b * 29) >> 8)]++;
+        }
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getCount(int channel, int level) {
+        return counts[channel * BINS + level];
+    }
+
+    /**
+     * Lowest level at or below which at least the given fraction (0..1) of pixels fall
+     */
+    public int percentile(int channel, double fraction) {
+        if (total == 0) {
+            return 0;
+        }
+        double target = Math.max(1, Math.ceil(fraction * total));
+        long seen = 0;
+        for (int level = 0; level < BINS; level++) {
+            seen += counts[channel * BINS + level];
+            if (seen >= target) {
+                return level;
+            }
+        }
+        return BINS - 1;
+    }
+
+    public double mean(int channel) {
+        if (total == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int level = 0; level < BINS; level++) {
+            sum += (double) level * counts[channel * BINS + level];
+        }
+        return sum / total;
+    }
+}
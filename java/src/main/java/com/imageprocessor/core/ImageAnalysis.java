@@ -0,0 +1,81 @@
+package com.imageprocessor.core;
+
+import javafx.scene.image.Image;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Content analysis shared by the content-adaptive filters. The histogram of an image is
+ * computed once, started at load time with {@link #analyzeAsync}, and kept for as long as
+ * the image itself is reachable.
+ */
+public final class ImageAnalysis {
+
+    private static final Map<Image, CompletableFuture<Histogram>> HISTOGRAMS = new WeakHashMap<>();
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-analysis");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ImageAnalysis() {
+    }
+
+    /**
+     * Start computing the histogram in the background unless it is known or underway
+     */
+    public static void analyzeAsync(Image image) {
+        if (image != null) {
+            histogramFuture(image, true);
+        }
+    }
+
+    /**
+     * Histogram of the image, waiting for a background analysis or computing it on the caller's thread
+     */
+    public static Histogram histogram(Image image) {
+        try {
+            return histogramFuture(image, false).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private static CompletableFuture<Histogram> histogramFuture(Image image, boolean background) {
+        CompletableFuture<Histogram> future;
+        boolean compute = false;
+        synchronized (HISTOGRAMS) {
+            future = HISTOGRAMS.get(image);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                HISTOGRAMS.put(image, future);
+                compute = true;
+            }
+        }
+        if (compute) {
+            CompletableFuture<Histogram> result = future;
+            Runnable analysis = () -> {
+                try {
+                    result.complete(Histogram.of(ImageProcessor.toArgbImage(image)));
+                } catch (RuntimeException e) {
+                    synchronized (HISTOGRAMS) {
+                        HISTOGRAMS.remove(image);
+                    }
+                    result.completeExceptionally(e);
+                }
+            };
+            if (background) {
+                EXECUTOR.execute(analysis);
+            } else {
+                analysis.run();
+            }
+        }
+        return future;
+    }
+}
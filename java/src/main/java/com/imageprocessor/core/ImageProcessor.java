@@ -1,10 +1,9 @@
 package com.imageprocessor.core;
 
+import com.imageprocessor.metrics.PerformanceMetrics;
 import javafx.scene.image.Image;
-import javafx.scene.image.PixelReader;
-import javafx.scene.image.PixelWriter;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.WritableImage;
-import javafx.scene.paint.Color;
 
 /**
  * Image processing engine with various filters
@@ -15,110 +14,131 @@ public class ImageProcessor {
      * Apply filter to image
      */
     public static Image applyFilter(Image sourceImage, FilterType filterType) {
-        if (sourceImage == null || filterType == FilterType.ORIGINAL) {
+        return applyFilter(sourceImage, FilterParams.defaults(filterType));
+    }
+
+    /**
+     * Apply filter with explicit parameter values to image
+     */
+    public static Image applyFilter(Image sourceImage, FilterParams params) {
+        return applyFilter(sourceImage, params, 1);
+    }
+
+    /**
+     * Apply filter to a proxy scale times the width of the image its radii are meant for
+     */
+    public static Image applyFilter(Image sourceImage, FilterParams params, double scale) {
+        return applyFilter(sourceImage, params, scale, LinearLight.isEnabled());
+    }
+
+    /**
+     * Apply filter with colour matrices mixing in linear light or not, regardless of the
+     * current {@link LinearLight} mode
+     */
+    public static Image applyFilter(Image sourceImage, FilterParams params, double scale, boolean linearLight) {
+        if (sourceImage == null || params.getFilterType() == FilterType.ORIGINAL) {
             return sourceImage;
         }
 
         int width = (int) sourceImage.getWidth();
         int height = (int) sourceImage.getHeight();
-        WritableImage resultImage = new WritableImage(width, height);
 
-        PixelReader reader = sourceImage.getPixelReader();
-        PixelWriter writer = resultImage.getPixelWriter();
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color originalColor = reader.getColor(x, y);
-                Color processedColor = processPixel(originalColor, filterType);
-                writer.setColor(x, y, processedColor);
-            }
+        PerformanceMetrics.Measurement measurement =
+            PerformanceMetrics.start(PerformanceMetrics.FILTER, params.getFilterType().getDisplayName());
+        if (params.getFilterType().isNeighbourhood()) {
+            int[] filtered = new int[width * height];
+            Convolution.forParams(params, scale).apply(readPixels(sourceImage), filtered, width, height);
+            Image result = createImage(filtered, width, height);
+            measurement.stop((long) width * height);
+            return result;
         }
-
-        return resultImage;
+        Histogram analysis = params.getFilterType().isContentAdaptive() ? ImageAnalysis.histogram(sourceImage) : null;
+        PixelStage stage = PixelKernels.stage(params, analysis, linearLight);
+        int[] pixels = readPixels(sourceImage);
+        ParallelExecutor.forEachBand(width, height, (fromRow, toRow) ->
+            stage.apply(pixels, pixels, fromRow * width, toRow * width));
+        Image result = createImage(pixels, width, height);
+        measurement.stop((long) width * height);
+        return result;
     }
 
     /**
-     * Process individual pixel based on filter type
+     * Apply a chain of filters to image in one read/write pass
      */
-    private static Color processPixel(Color color, FilterType filterType) {
-        return switch (filterType) {
-            case GRAYSCALE -> applyGrayscale(color);
-            case INVERT -> applyInvert(color);
-            case BRIGHTNESS -> applyBrightness(color);
-            case CONTRAST -> applyContrast(color);
-            case SEPIA -> applySepia(color);
-            default -> color;
-        };
+    public static Image applyChain(Image sourceImage, FilterChain chain) {
+        if (sourceImage == null || chain.isIdentity()) {
+            return sourceImage;
+        }
+
+        int width = (int) sourceImage.getWidth();
+        int height = (int) sourceImage.getHeight();
+
+        PerformanceMetrics.Measurement measurement =
+            PerformanceMetrics.start(PerformanceMetrics.CHAIN, chain.getName());
+        int[] pixels = readPixels(sourceImage);
+        if (!chain.isPointwise()) {
+            Histogram analysis = chain.isContentAdaptive() ? ImageAnalysis.histogram(sourceImage) : null;
+            ArgbImage source = new ArgbImage(width, height, pixels);
+            Image result = toFXImage(chain.bind(source, analysis).render(source));
+            measurement.stop((long) width * height);
+            return result;
+        }
+        FilterChain bound = chain.isContentAdaptive()
+            ? chain.bind(new ArgbImage(width, height, pixels), ImageAnalysis.histogram(sourceImage))
+            : chain;
+        ParallelExecutor.forEachBand(width, height, (fromRow, toRow) ->
+            bound.apply(pixels, pixels, fromRow * width, toRow * width));
+        Image result = createImage(pixels, width, height);
+        measurement.stop((long) width * height);
+        return result;
     }
 
     /**
-     * Grayscale filter - Convert to black and white
+     * Read the whole image into a packed ARGB buffer with one bulk transfer
      */
-    private static Color applyGrayscale(Color color) {
-        double gray = color.getRed() * 0.299 + 
-                     color.getGreen() * 0.587 + 
-                     color.getBlue() * 0.114;
-        return new Color(gray, gray, gray, color.getOpacity());
+    public static int[] readPixels(Image image) {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] pixels = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return pixels;
     }
 
     /**
-     * Invert filter - Reverse all colors
+     * Copy a packed ARGB buffer into a new heap image
      */
-    private static Color applyInvert(Color color) {
-        return new Color(
-            1.0 - color.getRed(),
-            1.0 - color.getGreen(),
-            1.0 - color.getBlue(),
-            color.getOpacity()
-        );
+    public static WritableImage createImage(int[] pixels, int width, int height) {
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return image;
     }
 
     /**
-     * Brightness filter - Increase luminosity
+     * Convert a JavaFX image to a toolkit-independent ARGB image
      */
-    private static Color applyBrightness(Color color) {
-        double factor = 1.2; // 20% increase
-        return new Color(
-            Math.min(color.getRed() * factor, 1.0),
-            Math.min(color.getGreen() * factor, 1.0),
-            Math.min(color.getBlue() * factor, 1.0),
-            color.getOpacity()
-        );
+    public static ArgbImage toArgbImage(Image image) {
+        return new ArgbImage((int) image.getWidth(), (int) image.getHeight(), readPixels(image));
     }
 
     /**
-     * Contrast filter - Enhance light/dark difference
+     * Convert an ARGB image to a JavaFX image
      */
-    private static Color applyContrast(Color color) {
-        double factor = 1.5; // 50% increase
-        double mid = 0.5;
-        
-        double r = mid + (color.getRed() - mid) * factor;
-        double g = mid + (color.getGreen() - mid) * factor;
-        double b = mid + (color.getBlue() - mid) * factor;
-        
-        return new Color(
-            Math.min(Math.max(r, 0.0), 1.0),
-            Math.min(Math.max(g, 0.0), 1.0),
-            Math.min(Math.max(b, 0.0), 1.0),
-            color.getOpacity()
-        );
+    public static WritableImage toFXImage(ArgbImage image) {
+        return createImage(image.getPixels(), image.getWidth(), image.getHeight());
     }
 
     /**
-     * Sepia filter - Vintage warm tone
+     * Downscaled proxy of the image that fits in maxWidth x maxHeight, for on-screen preview
      */
-    private static Color applySepia(Color color) {
-        double r = color.getRed() * 0.393 + color.getGreen() * 0.769 + color.getBlue() * 0.189;
-        double g = color.getRed() * 0.349 + color.getGreen() * 0.686 + color.getBlue() * 0.168;
-        double b = color.getRed() * 0.272 + color.getGreen() * 0.534 + color.getBlue() * 0.131;
+    public static SharedPixelBuffer createPreview(Image source, int maxWidth, int maxHeight) {
+        if (source == null) return null;
         
-        return new Color(
-            Math.min(r, 1.0),
-            Math.min(g, 1.0),
-            Math.min(b, 1.0),
-            color.getOpacity()
-        );
+        int[] size = ImageScaler.fitSize((int) source.getWidth(), (int) source.getHeight(), maxWidth, maxHeight);
+        if (size[0] == (int) source.getWidth() && size[1] == (int) source.getHeight()) {
+            return SharedPixelBuffer.fromImage(source);
+        }
+        ArgbImage preview = ImageScaler.downscale(toArgbImage(source), size[0], size[1]);
+        return SharedPixelBuffer.fromPixels(preview.getPixels(), preview.getWidth(), preview.getHeight());
     }
 
     /**
@@ -127,19 +147,12 @@ public class ImageProcessor {
     public static Image copyImage(Image source) {
         if (source == null) return null;
         
+        PerformanceMetrics.Measurement measurement = PerformanceMetrics.start(PerformanceMetrics.COPY, "image");
         int width = (int) source.getWidth();
         int height = (int) source.getHeight();
         WritableImage copy = new WritableImage(width, height);
-        
-        PixelReader reader = source.getPixelReader();
-        PixelWriter writer = copy.getPixelWriter();
-        
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                writer.setColor(x, y, reader.getColor(x, y));
-            }
-        }
-        
+        copy.getPixelWriter().setPixels(0, 0, width, height, source.getPixelReader(), 0, 0);
+        measurement.stop((long) width * height);
         return copy;
     }
 }
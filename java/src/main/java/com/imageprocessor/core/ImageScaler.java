@@ -0,0 +1,92 @@
+package com.imageprocessor.core;
+
+import java.util.Arrays;
+
+/**
+ * Area-averaging downscaler used to build proxy images for on-screen preview
+ */
+public final class ImageScaler {
+
+    private ImageScaler() {
+    }
+
+    /**
+     * Largest size with the source aspect ratio that fits in maxWidth x maxHeight, never upscaling
+     */
+    public static int[] fitSize(int width, int height, int maxWidth, int maxHeight) {
+        double scale = Math.min(1.0, Math.min((double) maxWidth / width, (double) maxHeight / height));
+        return new int[] {
+            Math.max(1, (int) Math.round(width * scale)),
+            Math.max(1, (int) Math.round(height * scale))
+        };
+    }
+
+    /**
+     * Downscale image to fit in maxWidth x maxHeight, returning the source itself when it already fits
+     */
+    public static ArgbImage fit(ArgbImage source, int maxWidth, int maxHeight) {
+        int[] size = fitSize(source.getWidth(), source.getHeight(), maxWidth, maxHeight);
+        if (size[0] == source.getWidth() && size[1] == source.getHeight()) {
+            return source;
+        }
+        return downscale(source, size[0], size[1]);
+    }
+
+    /**
+     * Box-filter downscale: every target pixel is the average of the source pixels it covers
+     */
+    public static ArgbImage downscale(ArgbImage source, int targetWidth, int targetHeight) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] src = source.getPixels();
+        int[] dst = new int[targetWidth * targetHeight];
+
+        int[] columnStart = new int[targetWidth + 1];
+        for (int x = 0; x <= targetWidth; x++) {
+            columnStart[x] = (int) ((long) x * width / targetWidth);
+        }
+
+        ParallelExecutor.forEachBand(targetWidth, targetHeight, (fromRow, toRow) -> {
+            long[] sums = new long[targetWidth * 4];
+            for (int y = fromRow; y < toRow; y++) {
+                int sy0 = (int) ((long) y * height / targetHeight);
+                int sy1 = Math.max(sy0 + 1, (int) ((long) (y + 1) * height / targetHeight));
+                Arrays.fill(sums, 0);
+
+                for (int sy = sy0; sy < sy1; sy++) {
+                    int rowOffset = sy * width;
+                    for (int x = 0; x < targetWidth; x++) {
+                        int sx1 = Math.max(columnStart[x] + 1, columnStart[x + 1]);
+                        long a = 0, r = 0, g = 0, b = 0;
+                        for (int sx = columnStart[x]; sx < sx1; sx++) {
+                            int p = src[rowOffset + sx];
+                            a += p >>> 24;
+                            r += (p >> 16) & 0xFF;
+                            g += (p >> 8) & 0xFF;
+                            b += p & 0xFF;
+                        }
+                        int s = x * 4;
+                        sums[s] += a;
+                        sums[s + 1] += r;
+                        sums[s + 2] += g;
+                        sums[s + 3] += b;
+                    }
+                }
+
+                int rows = sy1 - sy0;
+                int rowOffset = y * targetWidth;
+                for (int x = 0; x < targetWidth; x++) {
+                    long count = (long) rows * (Math.max(columnStart[x] + 1, columnStart[x + 1]) - columnStart[x]);
+                    long half = count / 2;
+                    int s = x * 4;
+                    dst[rowOffset + x] = (int) ((sums[s] + half) / count) << 24
+                        | (int) ((sums[s + 1] + half) / count) << 16
+                        | (int) ((sums[s + 2] + half) / count) << 8
+                        | (int) ((sums[s + 3] + half) / count);
+                }
+            }
+        });
+
+        return new ArgbImage(targetWidth, targetHeight, dst);
+    }
+}
@@ -0,0 +1,71 @@
+package com.imageprocessor.core;
+
+/**
+ * Opt-in linear-light mode for the colour-matrix filters. Mixing sRGB-encoded values darkens
+ * midtones, so in this mode channels are decoded to linear light, mixed, and encoded back.
+ * Both conversions are table lookups, so no pixel pays for {@code Math.pow}.
+ * Enable with -Dimageprocessor.linear=true or {@link #setEnabled}. Matrices, chains and cached
+ * results take the mode once when they are built, so toggling it never affects a running render.
+ */
+public final class LinearLight {
+
+    /** Linear light is 16-bit fixed point, 0..{@value #MAX} */
+    public static final int MAX = 0xFFFF;
+
+    /** Reverse table precision, the smallest that round-trips all 256 sRGB codes exactly */
+    private static final int INDEX_BITS = 12;
+    static final int INDEX_SHIFT = 16 - INDEX_BITS;
+
+    /** Tables are int[] so vector kernels can gather from them */
+    static final int[] TO_LINEAR = new int[256];
+    /** sRGB code for the centre of each linear bucket of 2^{@value #INDEX_SHIFT} values */
+    static final int[] TO_SRGB = new int[1 << INDEX_BITS];
+
+    static {
+        for (int c = 0; c < TO_LINEAR.length; c++) {
+            TO_LINEAR[c] = (int) Math.round(decode(c / 255.0) * MAX);
+        }
+        for (int i = 0; i < TO_SRGB.length; i++) {
+            TO_SRGB[i] = (int) Math.round(encode((i + 0.5) / TO_SRGB.length) * 255);
+        }
+    }
+
+    private static volatile boolean enabled = Boolean.getBoolean("imageprocessor.linear");
+
+    private LinearLight() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * Linear light 0..{@value #MAX} of an 8-bit sRGB channel value
+     */
+    public static int toLinear(int srgb) {
+        return TO_LINEAR[srgb];
+    }
+
+    /**
+     * 8-bit sRGB channel value of a linear light value, clamped to 0..{@value #MAX} first
+     */
+    public static int toSrgb(int linear) {
+        int clamped = linear < 0 ? 0 : Math.min(linear, MAX);
+        return TO_SRGB[clamped >> INDEX_SHIFT];
+    }
+
+    /**
+     * sRGB transfer function inverse, 0..1 to 0..1
+     */
+    private static double decode(double srgb) {
+        return srgb <= 0.04045 ? srgb / 12.92 : Math.pow((srgb + 0.055) / 1.055, 2.4);
+    }
+
+    private static double encode(double linear) {
+        return linear <= 0.0031308 ? linear * 12.92 : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+    }
+}
@@ -0,0 +1,168 @@
+package com.imageprocessor.core;
+
+import javafx.scene.image.Image;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Re-renders a cached preview proxy while filter parameters are being dragged. Requests are
+ * coalesced so only the latest parameters are rendered, renders that are overtaken stop early,
+ * and at most one finished frame waits for the UI thread at a time.
+ */
+public class LivePreviewRenderer {
+
+    private final Executor uiExecutor;
+    private final ExecutorService worker;
+    private final AtomicReference<FilterParams> latest = new AtomicReference<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final Semaphore frameInFlight = new Semaphore(1);
+
+    private volatile Proxy proxy;
+    private volatile Consumer<FilterParams> onFrame = params -> { };
+
+    /**
+     * @param uiExecutor executor of the thread that owns the displayed image, e.g. {@code Platform::runLater}
+     */
+    public LivePreviewRenderer(Executor uiExecutor) {
+        this.uiExecutor = uiExecutor;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-preview");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Called on the UI thread after a frame has been written to {@link #getImage()}
+     */
+    public void setOnFrame(Consumer<FilterParams> onFrame) {
+        this.onFrame = onFrame != null ? onFrame : params -> { };
+    }
+
+    /**
+     * Cache the pixels of the preview proxy that later requests render from. Drops pending work.
+     *
+     * @param scale width of the proxy over that of the image the filter radii are meant for
+     */
+    public void setSource(Image preview, double scale) {
+        cancel();
+        proxy = preview != null ? new Proxy(preview, scale) : null;
+    }
+
+    /**
+     * Image the frames are rendered into, or null without a source
+     */
+    public Image getImage() {
+        Proxy current = proxy;
+        return current != null ? current.output.getImage() : null;
+    }
+
+    /**
+     * Render the proxy with these parameters, superseding any request not yet shown
+     */
+    public void request(FilterParams params) {
+        latest.set(params);
+        generation.incrementAndGet();
+        if (draining.compareAndSet(false, true)) {
+            worker.execute(this::drain);
+        }
+    }
+
+    /**
+     * Discard pending and running renders
+     */
+    public void cancel() {
+        latest.set(null);
+        generation.incrementAndGet();
+    }
+
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+
+    private void drain() {
+        try {
+            FilterParams params;
+            while ((params = latest.getAndSet(null)) != null) {
+                render(params);
+            }
+        } finally {
+            draining.set(false);
+            // A request that arrived after the last poll but before the flag was cleared
+            if (latest.get() != null && draining.compareAndSet(false, true)) {
+                worker.execute(this::drain);
+            }
+        }
+    }
+
+    private void render(FilterParams params) {
+        Proxy current = proxy;
+        if (current == null) {
+            return;
+        }
+        // The scratch array is reused, so wait until the UI has copied out the previous frame
+        frameInFlight.acquireUninterruptibly();
+        boolean posted = false;
+        try {
+            int stamp = generation.get();
+            int width = current.pixels.getWidth();
+            int height = current.pixels.getHeight();
+            int[] src = current.pixels.getPixels();
+            int[] dst = current.scratch;
+            if (params.getFilterType().isNeighbourhood()) {
+                Convolution.forParams(params, current.scale).apply(src, dst, width, height);
+            } else {
+                Histogram analysis = params.getFilterType().isContentAdaptive() ? ImageAnalysis.histogram(current.source) : null;
+                PixelStage stage = PixelKernels.stage(params, analysis);
+                ParallelExecutor.forEachBand(width, height, (fromRow, toRow) -> {
+                    if (generation.get() == stamp) {
+                        stage.apply(src, dst, fromRow * width, toRow * width);
+                    }
+                });
+            }
+            if (generation.get() != stamp) {
+                return;
+            }
+            posted = true;
+            uiExecutor.execute(() -> {
+                try {
+                    if (proxy == current) {
+                        current.output.update(dst);
+                        onFrame.accept(params);
+                    }
+                } finally {
+                    frameInFlight.release();
+                }
+            });
+        } finally {
+            if (!posted) {
+                frameInFlight.release();
+            }
+        }
+    }
+
+    private static final class Proxy {
+        final Image source;
+        final ArgbImage pixels;
+        final int[] scratch;
+        final SharedPixelBuffer output;
+        final double scale;
+
+        Proxy(Image source, double scale) {
+            this.source = source;
+            this.scale = scale;
+            this.pixels = ImageProcessor.toArgbImage(source);
+            this.scratch = new int[pixels.getPixelCount()];
+            this.output = SharedPixelBuffer.fromPixels(pixels.getPixels(), pixels.getWidth(), pixels.getHeight());
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.imageprocessor.core;
+
+/**
+ * Per-channel 256-entry lookup table for channel-separable filters
+ */
+public final class LookupTable implements PixelStage {
+
+    private final byte[] red;
+    private final byte[] green;
+    private final byte[] blue;
+
+    LookupTable(byte[] red, byte[] green, byte[] blue) {
+        if (red.length != 256 || green.length != 256 || blue.length != 256) {
+            throw new IllegalArgumentException("Lookup tables must have 256 entries");
+        }
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+    }
+
+    /**
+     * Build a table that applies the same mapping to every colour channel
+     */
+    static LookupTable of(ChannelMapping mapping) {
+        byte[] table = new byte[256];
+        for (int c = 0; c < 256; c++) {
+            table[c] = (byte) clamp(mapping.map(c));
+        }
+        return new LookupTable(table, table, table);
+    }
+
+    /**
+     * Maps an 8-bit channel value to a (possibly out of range) output value
+     */
+    @FunctionalInterface
+    interface ChannelMapping {
+        int map(int value);
+    }
+
+    public int red(int value) {
+        return red[value] & 0xFF;
+    }
+
+    public int green(int value) {
+        return green[value] & 0xFF;
+    }
+
+    public int blue(int value) {
+        return blue[value] & 0xFF;
+    }
+
+    /**
+     * Table equivalent to applying this table and then the next one
+     */
+    public LookupTable andThen(LookupTable next) {
+        byte[] r = new byte[256];
+        byte[] g = new byte[256];
+        byte[] b = new byte[256];
+        for (int c = 0; c < 256; c++) {
+            r[c] = next.red[red[c] & 0xFF];
+            g[c] = next.green[green[c] & 0xFF];
+            b[c] = next.blue[blue[c] & 0xFF];
+        }
+        return new LookupTable(r, g, b);
+    }
+
+    /**
+     * Apply table to pixels in range [from, to). Source and destination may be the same array.
+     */
+    @Override
+    public void apply(int[] src, int[] dst, int from, int to) {
+        byte[] r = red;
+        byte[] g = green;
+        byte[] b = blue;
+        for (int i = from; i < to; i++) {
+            int p = src[i];
+            dst[i] = (p & 0xFF000000)
+                | ((r[(p >> 16) & 0xFF] & 0xFF) << 16)
+                | ((g[(p >> 8) & 0xFF] & 0xFF) << 8)
+                | (b[p & 0xFF] & 0xFF);
+        }
+    }
+
+    static int clamp(int value) {
+        return value < 0 ? 0 : Math.min(value, 255);
+    }
+}
@@ -0,0 +1,120 @@
+package com.imageprocessor.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Compiles channel-separable filters to lookup tables and caches them by filter and parameters
+ */
+public final class LookupTables {
+
+    /** Slider drags create a table per value; beyond this many the cache starts over */
+    private static final int MAX_CACHED_TABLES = 1024;
+
+    private static final Map<Key, LookupTable> CACHE = new ConcurrentHashMap<>();
+
+    private record Key(FilterType filterType, double first, double second) {
+    }
+
+    private LookupTables() {
+    }
+
+    /**
+     * Whether the filter maps each colour channel independently
+     */
+    public static boolean isSeparable(FilterType filterType) {
+        return switch (filterType) {
+            case ORIGINAL, INVERT, BRIGHTNESS, CONTRAST -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Table for a separable filter with its default parameters
+     */
+    public static LookupTable forFilter(FilterType filterType) {
+        return forParams(FilterParams.defaults(filterType));
+    }
+
+    /**
+     * Table for a separable filter with the given parameter values
+     */
+    public static LookupTable forParams(FilterParams params) {
+        return switch (params.getFilterType()) {
+            case ORIGINAL -> identity();
+            case INVERT -> invert();
+            case BRIGHTNESS -> brightness(params.get("factor"));
+            case CONTRAST -> contrast(params.get("factor"), params.get("midpoint"));
+            default -> throw new IllegalArgumentException(params.getFilterType() + " is not channel-separable");
+        };
+    }
+
+    private static LookupTable cached(Key key, Function<Key, LookupTable> compile) {
+        if (CACHE.size() >= MAX_CACHED_TABLES) {
+            CACHE.clear();
+        }
+        return CACHE.computeIfAbsent(key, compile);
+    }
+
+    /**
+     * Auto levels: stretch the luma range between the clip and 100 - clip percentiles to 0..255,
+     * the same mapping on every channel so hues are kept. Not cached, it depends on the image.
+     */
+    public static LookupTable autoLevels(Histogram histogram, double clipPercent) {
+        int low = histogram.percentile(Histogram.LUMA, clipPercent / 100);
+        int high = histogram.percentile(Histogram.LUMA, 1 - clipPercent / 100);
+        if (high <= low) {
+            return identity();
+        }
+        double scale = 255.0 / (high - low);
+        return LookupTable.of(c -> (int) Math.round((c - low) * scale));
+    }
+
+    /**
+     * Table for a separable or content-adaptive filter, fitted to the analysis when needed
+     */
+    public static LookupTable forParams(FilterParams params, Histogram analysis) {
+        if (params.getFilterType() == FilterType.AUTO_LEVELS) {
+            if (analysis == null) {
+                throw new IllegalStateException(params.getFilterType().getDisplayName() + " needs an image histogram");
+            }
+            return autoLevels(analysis, params.get("clip"));
+        }
+        return forParams(params);
+    }
+
+    public static LookupTable identity() {
+        return cached(new Key(FilterType.ORIGINAL, 0, 0), k -> LookupTable.of(c -> c));
+    }
+
+    /**
+     * Invert - 255 - c
+     */
+    public static LookupTable invert() {
+        return cached(new Key(FilterType.INVERT, 0, 0), k -> LookupTable.of(c -> 255 - c));
+    }
+
+    /**
+     * Brightness - min(c * factor, 255)
+     */
+    public static LookupTable brightness(double factor) {
+        return cached(new Key(FilterType.BRIGHTNESS, factor, 0),
+            k -> LookupTable.of(c -> (int) Math.round(c * factor)));
+    }
+
+    /**
+     * Contrast - clamp(mid + (c - mid) * factor), midpoint given in the 0..1 range
+     */
+    public static LookupTable contrast(double factor, double midpoint) {
+        return cached(new Key(FilterType.CONTRAST, factor, midpoint),
+            k -> LookupTable.of(c -> (int) Math.round(255.0 * (midpoint + (c / 255.0 - midpoint) * factor))));
+    }
+
+    /**
+     * Number of compiled tables currently cached
+     */
+    public static int cachedCount() {
+        return CACHE.size();
+    }
+}
@@ -0,0 +1,21 @@
+package com.imageprocessor.core;
+
+/**
+ * Accelerated implementation of {@link ColorMatrix#apply}
+ */
+interface MatrixKernel {
+
+    /**
+     * Apply fixed-point matrix {rr, rg, rb, ro, gr, gg, gb, go, br, bg, bb, bo} to pixels from
+     * {@code from} onwards, stopping before {@code to}
+     *
+     * @return index of the first pixel not processed, left for the scalar loop
+     */
+    int apply(int[] matrix, int[] src, int[] dst, int from, int to);
+
+    /**
+     * As {@link #apply} in linear light: channels go through {@link LinearLight} tables, the
+     * matrix is at {@link ColorMatrix#LINEAR_SHIFT} and its sums fit in an int
+     */
+    int applyLinear(int[] matrix, int[] src, int[] dst, int from, int to);
+}
@@ -0,0 +1,154 @@
+package com.imageprocessor.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs row-band work on a dedicated ForkJoin pool, separate from the common pool and the FX thread
+ */
+public final class ParallelExecutor {
+
+    /** Images below this many pixels are processed on the calling thread */
+    public static final int DEFAULT_MIN_PARALLEL_PIXELS = 256 * 256;
+
+    /** Target number of pixels per leaf band */
+    private static final int BAND_PIXELS = 64 * 1024;
+
+    private static volatile ForkJoinPool pool;
+    private static volatile int parallelism = Integer.getInteger(
+        "imageprocessor.parallelism", Runtime.getRuntime().availableProcessors());
+    private static volatile int minParallelPixels = DEFAULT_MIN_PARALLEL_PIXELS;
+
+    private ParallelExecutor() {
+    }
+
+    /**
+     * Work on the half-open row range [fromRow, toRow)
+     */
+    @FunctionalInterface
+    public interface BandTask {
+        void process(int fromRow, int toRow);
+    }
+
+    public static int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Change the number of worker threads. The current pool is shut down once its work drains.
+     */
+    public static synchronized void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + threads);
+        }
+        if (threads == parallelism) {
+            return;
+        }
+        parallelism = threads;
+        ForkJoinPool old = pool;
+        pool = null;
+        if (old != null) {
+            old.shutdown();
+        }
+    }
+
+    public static int getMinParallelPixels() {
+        return minParallelPixels;
+    }
+
+    public static void setMinParallelPixels(int pixels) {
+        minParallelPixels = Math.max(0, pixels);
+    }
+
+    /**
+     * Split the image into row bands and run them on the filter pool.
+     * Small images and parallelism of 1 stay on the calling thread.
+     */
+    public static void forEachBand(int width, int height, BandTask task) {
+        forEachBand(width, height, 1, task);
+    }
+
+    /**
+     * As {@link #forEachBand(int, int, BandTask)} with bands of at least minRows rows where the
+     * image allows, for work that also reads halo rows around each band
+     */
+    public static void forEachBand(int width, int height, int minRows, BandTask task) {
+        long pixels = (long) width * height;
+        if (pixels == 0) {
+            return;
+        }
+        int threads = parallelism;
+        if (threads == 1 || pixels < minParallelPixels || height < 2) {
+            task.process(0, height);
+            return;
+        }
+
+        int grain = Math.max(minRows, BAND_PIXELS / Math.max(1, width));
+        // Never produce fewer bands than workers
+        grain = Math.min(grain, Math.max(1, height / threads));
+        getPool().invoke(new BandAction(task, 0, height, grain));
+    }
+
+    /**
+     * Run count independent work items on the filter pool, one item per task, e.g. a batch of
+     * images each too small to split into bands. Returns when every item is done.
+     */
+    public static void forEachItem(int count, BandTask task) {
+        if (count == 0) {
+            return;
+        }
+        if (parallelism == 1 || count == 1) {
+            task.process(0, count);
+            return;
+        }
+        getPool().invoke(new BandAction(task, 0, count, 1));
+    }
+
+    private static ForkJoinPool getPool() {
+        ForkJoinPool current = pool;
+        if (current == null) {
+            synchronized (ParallelExecutor.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ForkJoinPool(parallelism, ParallelExecutor::newWorker, null, false);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool forkJoinPool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+        thread.setName("filter-worker-" + thread.getPoolIndex());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static final class BandAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BandTask task;
+        private final int fromRow;
+        private final int toRow;
+        private final int grain;
+
+        BandAction(BandTask task, int fromRow, int toRow, int grain) {
+            this.task = task;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= grain) {
+                task.process(fromRow, toRow);
+                return;
+            }
+            int mid = (fromRow + toRow) >>> 1;
+            invokeAll(new BandAction(task, fromRow, mid, grain), new BandAction(task, mid, toRow, grain));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.imageprocessor.core;
+
+/**
+ * Allocation-free integer kernels operating on packed ARGB pixels
+ */
+public final class PixelKernels {
+
+    private PixelKernels() {
+    }
+
+    /**
+     * Apply filter to pixels in range [from, to). Source and destination may be the same array.
+     */
+    public static void apply(FilterType filterType, int[] src, int[] dst, int from, int to) {
+        switch (filterType) {
+            case GRAYSCALE, SEPIA -> ColorMatrix.forFilter(filterType).apply(src, dst, from, to);
+            case INVERT -> invert(src, dst, from, to);
+            case BRIGHTNESS, CONTRAST -> LookupTables.forFilter(filterType).apply(src, dst, from, to);
+            case AUTO_LEVELS -> throw new IllegalStateException(
+                filterType.getDisplayName() + " adapts to the image, use stage() with its histogram");
+            case BLUR, SHARPEN, EDGE_DETECT -> throw new IllegalStateException(
+                filterType.getDisplayName() + " reads neighbouring pixels, use Convolution");
+            default -> {
+                if (src != dst) {
+                    System.arraycopy(src, from, dst, from, to - from);
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply filter with explicit parameter values to pixels in range [from, to)
+     */
+    public static void apply(FilterParams params, int[] src, int[] dst, int from, int to) {
+        FilterType filterType = params.getFilterType();
+        if (filterType.getParameters().isEmpty() || filterType.isContentAdaptive() || filterType.isNeighbourhood()) {
+            apply(filterType, src, dst, from, to);
+        } else {
+            LookupTables.forParams(params).apply(src, dst, from, to);
+        }
+    }
+
+    /**
+     * Stage applying the filter, resolved once so bands do not look it up again.
+     * Content-adaptive filters are fitted to the analysis, which may be null for the others.
+     */
+    public static PixelStage stage(FilterParams params, Histogram analysis) {
+        return stage(params, analysis, LinearLight.isEnabled());
+    }
+
+    /**
+     * Stage for the filter with colour matrices mixing in linear light or not, regardless of
+     * the current {@link LinearLight} mode
+     */
+    public static PixelStage stage(FilterParams params, Histogram analysis, boolean linearLight) {
+        FilterType filterType = params.getFilterType();
+        if (filterType.isNeighbourhood()) {
+            throw new IllegalArgumentException(filterType + " reads neighbouring pixels, use Convolution");
+        }
+        if (filterType.isContentAdaptive() || LookupTables.isSeparable(filterType)) {
+            return LookupTables.forParams(params, analysis);
+        }
+        if (ColorMatrix.isLinear(filterType)) {
+            return ColorMatrix.forFilter(filterType, linearLight);
+        }
+        return (src, dst, from, to) -> apply(params, src, dst, from, to);
+    }
+
+    /**
+     * Invert filter - 255 - c on every colour channel, a single XOR is cheaper than a table lookup
+     */
+    static void invert(int[] src, int[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = src[i] ^ 0x00FFFFFF;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.imageprocessor.core;
+
+/**
+ * A fused unit of work in a filter chain operating on packed ARGB pixels
+ */
+public interface PixelStage {
+
+    /**
+     * Apply stage to pixels in range [from, to). Source and destination may be the same array.
+     */
+    void apply(int[] src, int[] dst, int from, int to);
+}
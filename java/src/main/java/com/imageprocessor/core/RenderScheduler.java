@@ -0,0 +1,170 @@
+package com.imageprocessor.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs renders on a bounded pool with at most one render per lane (for example a display panel).
+ * A new submission supersedes the lane's previous one: a queued render is dropped, a running one
+ * is cancelled and the new render starts once it has returned. Only the latest render of a lane
+ * reports back, and always on the UI executor.
+ */
+public class RenderScheduler {
+
+    /** Default pool size, one worker per panel */
+    public static final int DEFAULT_THREADS = Integer.getInteger("imageprocessor.render.threads", 2);
+
+    private final Executor uiExecutor;
+    private final ExecutorService executor;
+    private final Map<Object, Lane> lanes = new HashMap<>();
+
+    /**
+     * @param uiExecutor executor results are handed to, e.g. {@code Platform::runLater}
+     */
+    public RenderScheduler(Executor uiExecutor) {
+        this(DEFAULT_THREADS, uiExecutor);
+    }
+
+    public RenderScheduler(int threads, Executor uiExecutor) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Render threads must be at least 1: " + threads);
+        }
+        this.uiExecutor = uiExecutor;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "render-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Schedule a render for the lane, superseding its previous one. The callbacks run on the UI
+     * executor and only if no newer render was submitted and the lane was not cancelled meanwhile.
+     */
+    public <T> void submit(Object lane, Callable<T> render, Consumer<? super T> onSuccess, Consumer<Throwable> onFailure) {
+        Render<T> task = new Render<>(render, onSuccess, onFailure);
+        synchronized (lanes) {
+            Lane state = lanes.computeIfAbsent(lane, key -> new Lane());
+            state.latest = task;
+            if (state.running == null) {
+                start(state, task);
+                return;
+            }
+            state.pending = task;
+            state.running.cancel(true);
+        }
+    }
+
+    /**
+     * Whether the lane has a render queued or running
+     */
+    public boolean isBusy(Object lane) {
+        synchronized (lanes) {
+            Lane state = lanes.get(lane);
+            return state != null && state.latest != null;
+        }
+    }
+
+    /**
+     * Drop the lane's queued render and cancel the running one; neither reports back
+     */
+    public void cancel(Object lane) {
+        synchronized (lanes) {
+            Lane state = lanes.get(lane);
+            if (state == null) {
+                return;
+            }
+            state.latest = null;
+            state.pending = null;
+            if (state.running != null) {
+                state.running.cancel(true);
+            }
+        }
+    }
+
+    public void shutdown() {
+        synchronized (lanes) {
+            lanes.keySet().forEach(this::cancel);
+        }
+        executor.shutdownNow();
+    }
+
+    private void start(Lane state, Render<?> task) {
+        state.running = task;
+        executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                finished(state, task);
+            }
+        });
+    }
+
+    /**
+     * Called once the render has really returned, so the next one never overlaps it
+     */
+    private void finished(Lane state, Render<?> task) {
+        synchronized (lanes) {
+            state.running = null;
+            if (state.pending != null) {
+                Render<?> next = state.pending;
+                state.pending = null;
+                start(state, next);
+            }
+        }
+        if (!task.isCancelled()) {
+            uiExecutor.execute(() -> deliver(state, task));
+        }
+    }
+
+    private void deliver(Lane state, Render<?> task) {
+        synchronized (lanes) {
+            if (state.latest != task) {
+                return;
+            }
+            state.latest = null;
+        }
+        task.deliver();
+    }
+
+    private static final class Lane {
+        /** Most recent submission, cleared once it has reported back or the lane is cancelled */
+        Render<?> latest;
+        Render<?> running;
+        Render<?> pending;
+    }
+
+    private static final class Render<T> extends FutureTask<T> {
+        private final Consumer<? super T> onSuccess;
+        private final Consumer<Throwable> onFailure;
+
+        Render(Callable<T> render, Consumer<? super T> onSuccess, Consumer<Throwable> onFailure) {
+            super(render);
+            this.onSuccess = onSuccess;
+            this.onFailure = onFailure;
+        }
+
+        void deliver() {
+            T value;
+            try {
+                value = get();
+            } catch (CancellationException | InterruptedException e) {
+                return;
+            } catch (ExecutionException e) {
+                onFailure.accept(e.getCause());
+                return;
+            }
+            onSuccess.accept(value);
+        }
+    }
+}
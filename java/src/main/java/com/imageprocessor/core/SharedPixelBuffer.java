@@ -0,0 +1,129 @@
+package com.imageprocessor.core;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * Display pixels shared with the UI through a {@link PixelBuffer}, so a view that is redrawn
+ * over and over, such as a preview proxy or a playing sequence, is overwritten in place instead
+ * of allocating a new image per frame, and an opaque decoded image is shown straight from its
+ * pixel array instead of a second copy. Other one-off images stay on the heap, see
+ * {@link ImageProcessor#createImage}.
+ */
+public final class SharedPixelBuffer {
+
+    /** Pixels converted per chunk when premultiplying into the direct buffer */
+    private static final int CHUNK_PIXELS = 4096;
+
+    private final int width;
+    private final int height;
+    private final IntBuffer buffer;
+    private final PixelBuffer<IntBuffer> pixelBuffer;
+    private final WritableImage image;
+
+    private SharedPixelBuffer(int width, int height, IntBuffer buffer) {
+        this.width = width;
+        this.height = height;
+        this.buffer = buffer;
+        this.pixelBuffer = new PixelBuffer<>(width, height, buffer, PixelFormat.getIntArgbPreInstance());
+        this.image = new WritableImage(pixelBuffer);
+    }
+
+    private static IntBuffer allocateDirect(int width, int height) {
+        return ByteBuffer.allocateDirect(width * height * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Copy non-premultiplied ARGB pixels into a new buffer, leaving the array untouched
+     */
+    public static SharedPixelBuffer fromPixels(int[] pixels, int width, int height) {
+        IntBuffer buffer = allocateDirect(width, height);
+        copyPremultiplied(pixels, buffer, width * height);
+        return new SharedPixelBuffer(width, height, buffer);
+    }
+
+    private static void copyPremultiplied(int[] pixels, IntBuffer buffer, int count) {
+        buffer.rewind();
+        int[] chunk = new int[Math.min(CHUNK_PIXELS, count)];
+        for (int start = 0; start < count; start += chunk.length) {
+            int length = Math.min(chunk.length, count - start);
+            for (int i = 0; i < length; i++) {
+                chunk[i] = premultiply(pixels[start + i]);
+            }
+            buffer.put(chunk, 0, length);
+        }
+        buffer.rewind();
+    }
+
+    /**
+     * Show the array itself, without copying, when every pixel is opaque so straight and
+     * premultiplied ARGB are the same; null otherwise. The array must not change afterwards
+     * except through {@link #update}.
+     */
+    public static SharedPixelBuffer wrapOpaque(int[] pixels, int width, int height) {
+        int count = width * height;
+        for (int i = 0; i < count; i++) {
+            if (pixels[i] >>> 24 != 0xFF) {
+                return null;
+            }
+        }
+        return new SharedPixelBuffer(width, height, IntBuffer.wrap(pixels, 0, count).slice());
+    }
+
+    /**
+     * Read an image straight into a new buffer, with no intermediate heap array
+     */
+    public static SharedPixelBuffer fromImage(Image source) {
+        int width = (int) source.getWidth();
+        int height = (int) source.getHeight();
+        IntBuffer buffer = allocateDirect(width, height);
+        source.getPixelReader().getPixels(0, 0, width, height, PixelFormat.getIntArgbPreInstance(), buffer, width);
+        buffer.rewind();
+        return new SharedPixelBuffer(width, height, buffer);
+    }
+
+    private static int premultiply(int argb) {
+        int a = argb >>> 24;
+        if (a == 0xFF) {
+            return argb;
+        }
+        if (a == 0) {
+            return 0;
+        }
+        int r = (((argb >> 16) & 0xFF) * a + 127) / 255;
+        int g = (((argb >> 8) & 0xFF) * a + 127) / 255;
+        int b = ((argb & 0xFF) * a + 127) / 255;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Overwrite the pixels in place and mark the displayed image dirty. Must run on the FX thread.
+     */
+    public void update(int[] pixels) {
+        pixelBuffer.updateBuffer(unused -> {
+            copyPremultiplied(pixels, buffer, width * height);
+            return null;
+        });
+    }
+
+    /**
+     * Image backed directly by this buffer
+     */
+    public WritableImage getImage() {
+        return image;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
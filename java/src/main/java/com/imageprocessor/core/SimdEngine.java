@@ -0,0 +1,60 @@
+package com.imageprocessor.core;
+
+/**
+ * Runtime selection between vector (SIMD) and scalar kernels.
+ * Vector kernels need the JVM started with {@code --add-modules jdk.incubator.vector};
+ * without it every filter silently uses the scalar path.
+ */
+public final class SimdEngine {
+
+    private static final MatrixKernel VECTOR_MATRIX = loadVectorKernel();
+
+    private static volatile boolean enabled = VECTOR_MATRIX != null
+        && Boolean.parseBoolean(System.getProperty("imageprocessor.simd", "true"));
+
+    private SimdEngine() {
+    }
+
+    private static MatrixKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            // Loaded by name so the scalar path never links against the incubator module
+            return (MatrixKernel) Class.forName("com.imageprocessor.core.VectorMatrixKernel")
+                .getDeclaredConstructor()
+                .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the Vector API is usable in this JVM
+     */
+    public static boolean isAvailable() {
+        return VECTOR_MATRIX != null;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switch vector kernels on or off; ignored when they are not available
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value && VECTOR_MATRIX != null;
+    }
+
+    /**
+     * Short description for logs, e.g. "SIMD (8 lanes)" or "scalar"
+     */
+    public static String describe() {
+        return enabled ? "SIMD (" + VectorMatrixKernel.laneCount() + " lanes)" : "scalar";
+    }
+
+    static MatrixKernel matrixKernel() {
+        return enabled ? VECTOR_MATRIX : null;
+    }
+}
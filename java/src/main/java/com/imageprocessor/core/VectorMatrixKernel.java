@@ -0,0 +1,88 @@
+package com.imageprocessor.core;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Colour-matrix kernel on the incubating Vector API, processing one full vector of packed pixels per step.
+ * Only loaded by {@link SimdEngine} when the jdk.incubator.vector module is present.
+ */
+final class VectorMatrixKernel implements MatrixKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    static int laneCount() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public int apply(int[] m, int[] src, int[] dst, int from, int to) {
+        int upper = from + SPECIES.loopBound(to - from);
+        int i = from;
+        for (; i < upper; i += SPECIES.length()) {
+            IntVector p = IntVector.fromArray(SPECIES, src, i);
+            IntVector r = p.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+            IntVector g = p.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+            IntVector b = p.and(0xFF);
+
+            IntVector nr = channel(r, g, b, m[0], m[1], m[2], m[3]);
+            IntVector ng = channel(r, g, b, m[4], m[5], m[6], m[7]);
+            IntVector nb = channel(r, g, b, m[8], m[9], m[10], m[11]);
+
+            p.and(0xFF000000)
+                .or(nr.lanewise(VectorOperators.LSHL, 16))
+                .or(ng.lanewise(VectorOperators.LSHL, 8))
+                .or(nb)
+                .intoArray(dst, i);
+        }
+        return i;
+    }
+
+    @Override
+    public int applyLinear(int[] m, int[] src, int[] dst, int from, int to) {
+        int lanes = SPECIES.length();
+        int upper = from + SPECIES.loopBound(to - from);
+        // Gathers take their indexes from an array: red, green and blue lanes side by side
+        int[] index = new int[3 * lanes];
+        int i = from;
+        for (; i < upper; i += lanes) {
+            IntVector p = IntVector.fromArray(SPECIES, src, i);
+            p.lanewise(VectorOperators.LSHR, 16).and(0xFF).intoArray(index, 0);
+            p.lanewise(VectorOperators.LSHR, 8).and(0xFF).intoArray(index, lanes);
+            p.and(0xFF).intoArray(index, 2 * lanes);
+            IntVector r = IntVector.fromArray(SPECIES, LinearLight.TO_LINEAR, 0, index, 0);
+            IntVector g = IntVector.fromArray(SPECIES, LinearLight.TO_LINEAR, 0, index, lanes);
+            IntVector b = IntVector.fromArray(SPECIES, LinearLight.TO_LINEAR, 0, index, 2 * lanes);
+
+            linearChannel(r, g, b, m[0], m[1], m[2], m[3]).intoArray(index, 0);
+            linearChannel(r, g, b, m[4], m[5], m[6], m[7]).intoArray(index, lanes);
+            linearChannel(r, g, b, m[8], m[9], m[10], m[11]).intoArray(index, 2 * lanes);
+
+            p.and(0xFF000000)
+                .or(IntVector.fromArray(SPECIES, LinearLight.TO_SRGB, 0, index, 0).lanewise(VectorOperators.LSHL, 16))
+                .or(IntVector.fromArray(SPECIES, LinearLight.TO_SRGB, 0, index, lanes).lanewise(VectorOperators.LSHL, 8))
+                .or(IntVector.fromArray(SPECIES, LinearLight.TO_SRGB, 0, index, 2 * lanes))
+                .intoArray(dst, i);
+        }
+        return i;
+    }
+
+    /**
+     * Mixed linear channel as an index into the reverse table
+     */
+    private static IntVector linearChannel(IntVector r, IntVector g, IntVector b, int cr, int cg, int cb, int offset) {
+        return r.mul(cr).add(g.mul(cg)).add(b.mul(cb)).add(offset)
+            .lanewise(VectorOperators.ASHR, ColorMatrix.LINEAR_SHIFT)
+            .max(0)
+            .min(LinearLight.MAX)
+            .lanewise(VectorOperators.LSHR, LinearLight.INDEX_SHIFT);
+    }
+
+    private static IntVector channel(IntVector r, IntVector g, IntVector b, int cr, int cg, int cb, int offset) {
+        return r.mul(cr).add(g.mul(cg)).add(b.mul(cb)).add(offset)
+            .lanewise(VectorOperators.ASHR, ColorMatrix.SHIFT)
+            .max(0)
+            .min(255);
+    }
+}
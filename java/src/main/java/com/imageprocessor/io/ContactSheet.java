@@ -0,0 +1,79 @@
+package com.imageprocessor.io;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterFanOut;
+import com.imageprocessor.core.FilterParams;
+import com.imageprocessor.core.ImageScaler;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * Grid of labelled thumbnails, one per fan-out filter, for side-by-side review
+ */
+public final class ContactSheet {
+
+    /** Longest side of a thumbnail in pixels */
+    public static final int DEFAULT_TILE_SIZE = 512;
+
+    private static final int MARGIN = 12;
+    private static final int LABEL_HEIGHT = 24;
+    private static final Color BACKGROUND = new Color(0x14141e);
+    private static final Color LABEL = new Color(0xdddddd);
+
+    private ContactSheet() {
+    }
+
+    /**
+     * Downscale the source to tile size first and fan out on the thumbnail, so building the
+     * sheet costs one small render instead of filtering at full resolution. Neighbourhood radii
+     * shrink with the thumbnail, so each tile looks like its full-size output.
+     */
+    public static ArgbImage compose(ArgbImage source, FilterFanOut fanOut, int tileSize) {
+        ArgbImage thumbnail = ImageScaler.fit(source, tileSize, tileSize);
+        double scale = (double) thumbnail.getWidth() / source.getWidth();
+        return layout(fanOut.scaled(scale).render(thumbnail), fanOut.getOutputs());
+    }
+
+    /**
+     * Arrange equally sized tiles in a near-square grid, each labelled with its filter
+     */
+    public static ArgbImage layout(ArgbImage[] tiles, List<FilterParams> labels) {
+        int columns = (int) Math.ceil(Math.sqrt(tiles.length));
+        int rows = (tiles.length + columns - 1) / columns;
+        int tileWidth = tiles[0].getWidth();
+        int tileHeight = tiles[0].getHeight();
+        int cellHeight = tileHeight + LABEL_HEIGHT;
+        int width = MARGIN + columns * (tileWidth + MARGIN);
+        int height = MARGIN + rows * (cellHeight + MARGIN);
+
+        BufferedImage sheet = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = sheet.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setColor(BACKGROUND);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 14));
+            FontMetrics metrics = graphics.getFontMetrics();
+            graphics.setColor(LABEL);
+
+            for (int i = 0; i < tiles.length; i++) {
+                int x = MARGIN + (i % columns) * (tileWidth + MARGIN);
+                int y = MARGIN + (i / columns) * (cellHeight + MARGIN);
+                graphics.drawImage(ImageCodec.toBufferedImage(tiles[i], false), x, y, null);
+                FilterParams params = labels.get(i);
+                String label = params.isDefault() ? params.getFilterType().getDisplayName() : params.toString();
+                int textX = x + (tileWidth - metrics.stringWidth(label)) / 2;
+                graphics.drawString(label, textX, y + tileHeight + (LABEL_HEIGHT + metrics.getAscent()) / 2 - 2);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return ImageCodec.fromBufferedImage(sheet);
+    }
+}
@@ -0,0 +1,258 @@
+package com.imageprocessor.io;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.metrics.PerformanceMetrics;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.function.DoubleConsumer;
+
+/**
+ * ImageIO based decoding and encoding of packed ARGB images, usable without JavaFX
+ */
+public final class ImageCodec {
+
+    private ImageCodec() {
+    }
+
+    /**
+     * Decode file into a packed ARGB image
+     */
+    public static ArgbImage read(File file) throws IOException {
+        PerformanceMetrics.Measurement measurement = PerformanceMetrics.start(PerformanceMetrics.DECODE, formatOf(file));
+        BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Unsupported image format: " + file.getName());
+        }
+        ArgbImage decoded = fromBufferedImage(image);
+        measurement.stop(decoded.getPixelCount());
+        return decoded;
+    }
+
+    /**
+     * Decode an encoded image held in memory, such as a request body
+     *
+     * @param format label for metrics and errors, the actual format is detected from the data
+     */
+    public static ArgbImage read(byte[] data, String format) throws IOException {
+        return read(data, format, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decode an encoded image held in memory, refusing it from its header before any pixels are
+     * decoded when it has more than maxPixels. The data is buffered in memory, never in temp files.
+     *
+     * @throws TooLargeException when the image has more than maxPixels
+     */
+    public static ArgbImage read(byte[] data, String format, long maxPixels) throws IOException {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + format);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new TooLargeException("Image of " + width + " x " + height
+                        + " is larger than " + maxPixels + " pixels");
+                }
+                PerformanceMetrics.Measurement measurement = PerformanceMetrics.start(PerformanceMetrics.DECODE, format);
+                ArgbImage decoded = fromBufferedImage(reader.read(0));
+                measurement.stop(decoded.getPixelCount());
+                return decoded;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Image refused for its dimensions before it was decoded
+     */
+    public static final class TooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public TooLargeException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Encode image to file, format taken from the file extension
+     */
+    public static void write(ArgbImage image, File file) throws IOException {
+        write(image, file, formatOf(file));
+    }
+
+    public static void write(ArgbImage image, File file, String format) throws IOException {
+        write(image, file, format, null);
+    }
+
+    /**
+     * Encode image to file, reporting encoder progress from 0 to 1
+     *
+     * @return number of bytes written
+     */
+    public static long write(ArgbImage image, File file, String format, DoubleConsumer progress) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No encoder for format: " + format);
+        }
+        ImageWriter writer = writers.next();
+        if (progress != null) {
+            writer.addIIOWriteProgressListener(new ProgressAdapter(progress));
+        }
+
+        PerformanceMetrics.Measurement measurement = PerformanceMetrics.start(PerformanceMetrics.ENCODE, format);
+        Files.deleteIfExists(file.toPath());
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            if (output == null) {
+                throw new IOException("Cannot open " + file + " for writing");
+            }
+            writer.setOutput(output);
+            writer.write(toBufferedImage(image, hasAlpha(format)));
+        } finally {
+            writer.dispose();
+        }
+        measurement.stop(image.getPixelCount());
+        return file.length();
+    }
+
+    /**
+     * Encode image to a stream as it is produced, buffering seeks in memory rather than in temp
+     * files; the stream is flushed but left open
+     */
+    public static void write(ArgbImage image, OutputStream out, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No encoder for format: " + format);
+        }
+        ImageWriter writer = writers.next();
+        PerformanceMetrics.Measurement measurement = PerformanceMetrics.start(PerformanceMetrics.ENCODE, format);
+        try (ImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(output);
+            writer.write(toBufferedImage(image, hasAlpha(format)));
+        } finally {
+            writer.dispose();
+        }
+        out.flush();
+        measurement.stop(image.getPixelCount());
+    }
+
+    private static final class ProgressAdapter implements IIOWriteProgressListener {
+        private final DoubleConsumer progress;
+
+        ProgressAdapter(DoubleConsumer progress) {
+            this.progress = progress;
+        }
+
+        @Override
+        public void imageStarted(ImageWriter source, int imageIndex) {
+            progress.accept(0);
+        }
+
+        @Override
+        public void imageProgress(ImageWriter source, float percentageDone) {
+            progress.accept(percentageDone / 100.0);
+        }
+
+        @Override
+        public void imageComplete(ImageWriter source) {
+            progress.accept(1);
+        }
+
+        @Override
+        public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) {
+        }
+
+        @Override
+        public void thumbnailProgress(ImageWriter source, float percentageDone) {
+        }
+
+        @Override
+        public void thumbnailComplete(ImageWriter source) {
+        }
+
+        @Override
+        public void writeAborted(ImageWriter source) {
+        }
+    }
+
+    public static ArgbImage fromBufferedImage(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = new int[width * height];
+        image.getRGB(0, 0, width, height, pixels, 0, width);
+        return new ArgbImage(width, height, pixels);
+    }
+
+    /**
+     * Wrap the pixel array in a BufferedImage without copying. Without alpha the
+     * alpha byte is ignored, which JPEG and BMP encoders require.
+     */
+    public static BufferedImage toBufferedImage(ArgbImage image, boolean withAlpha) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        DirectColorModel colorModel = colorModel(withAlpha);
+        DataBuffer buffer = new DataBufferInt(image.getPixels(), width * height);
+        SinglePixelPackedSampleModel sampleModel = new SinglePixelPackedSampleModel(
+            DataBuffer.TYPE_INT, width, height, colorModel.getMasks());
+        WritableRaster raster = Raster.createWritableRaster(sampleModel, buffer, null);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /**
+     * Colour model reading packed ARGB ints, ignoring the alpha byte when withAlpha is false
+     */
+    static DirectColorModel colorModel(boolean withAlpha) {
+        return withAlpha
+            ? new DirectColorModel(32, 0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000)
+            : new DirectColorModel(24, 0x00FF0000, 0x0000FF00, 0x000000FF);
+    }
+
+    /**
+     * ImageIO format name for the file extension, PNG when unknown
+     */
+    public static String formatOf(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String extension = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return switch (extension) {
+            case "jpg", "jpeg" -> "jpg";
+            case "bmp" -> "bmp";
+            default -> "png";
+        };
+    }
+
+    public static boolean hasAlpha(String format) {
+        return "png".equals(format);
+    }
+
+    public static boolean isSupported(File file) {
+        String name = file.getName().toLowerCase(Locale.ROOT);
+        return name.endsWith(".png") || name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".bmp");
+    }
+}
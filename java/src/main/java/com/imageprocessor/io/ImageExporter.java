@@ -0,0 +1,183 @@
+package com.imageprocessor.io;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.core.FilterFanOut;
+import com.imageprocessor.core.ImageProcessor;
+import javafx.scene.image.Image;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Encodes images to PNG, JPEG or BMP on a background executor, off the FX thread
+ */
+public final class ImageExporter {
+
+    /** Fan-out outputs rendered and encoded together by {@link #exportAll}, bounding the outputs in memory */
+    private static final int MAX_LIVE_OUTPUTS = 4;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+        Math.max(2, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+            Thread thread = new Thread(runnable, "image-export-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private ImageExporter() {
+    }
+
+    /**
+     * Encode image to file in the background, format taken from the file extension
+     *
+     * @param progress receives encoder progress from 0 to 1 on the export thread, may be null
+     * @return future completing with the number of bytes written
+     */
+    public static CompletableFuture<Long> export(Image image, File file, DoubleConsumer progress) {
+        return export(() -> image, file, progress);
+    }
+
+    /**
+     * Render and encode in the background, so a full-resolution render never runs on the FX thread
+     *
+     * @param render produces the image to save, called on the export thread
+     */
+    public static CompletableFuture<Long> export(Supplier<Image> render, File file, DoubleConsumer progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                ArgbImage pixels = ImageProcessor.toArgbImage(render.get());
+                return ImageCodec.write(pixels, file, ImageCodec.formatOf(file), progress);
+            } catch (Exception e) {
+                throw new ExportException(file, e);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Render the fan-out filters of the source a few at a time, each group from one read pass, and
+     * encode each group in parallel as {@code {baseName}_{filter}.{format}} before the next is
+     * rendered, plus {@code {baseName}_contact.{format}} when a contact sheet is requested
+     *
+     * @param source produces the full-resolution pixels, called on the export thread
+     * @param progress receives the average encoder progress from 0 to 1 on export threads, may be null
+     * @return future completing with the total number of bytes written
+     */
+    public static CompletableFuture<Long> exportAll(Supplier<ArgbImage> source, FilterFanOut fanOut, File directory,
+                                                    String baseName, String format, boolean contactSheet,
+                                                    DoubleConsumer progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            ArgbImage pixels = source.get();
+            double[] fractions = new double[fanOut.size() + (contactSheet ? 1 : 0)];
+            List<FutureTask<Long>> group = new ArrayList<>();
+            long[] bytes = {0};
+            fanOut.render(pixels, MAX_LIVE_OUTPUTS, (output, i) -> {
+                String name = fanOut.getOutputs().get(i).getFilterType().name().toLowerCase(Locale.ROOT);
+                FutureTask<Long> encode = encode(output, new File(directory, baseName + "_" + name + "." + format),
+                    format, averaged(progress, fractions, i));
+                EXECUTOR.execute(encode);
+                group.add(encode);
+                // Outputs are handed over group by group; finish this one before the next is rendered
+                if (group.size() == MAX_LIVE_OUTPUTS || i == fanOut.size() - 1) {
+                    bytes[0] += finish(group);
+                    group.clear();
+                }
+            });
+            if (contactSheet) {
+                FutureTask<Long> encode = encode(ContactSheet.compose(pixels, fanOut, ContactSheet.DEFAULT_TILE_SIZE),
+                    new File(directory, baseName + "_contact." + format), format,
+                    averaged(progress, fractions, fractions.length - 1));
+                bytes[0] += finish(List.of(encode));
+            }
+            return bytes[0];
+        }, EXECUTOR);
+    }
+
+    private static FutureTask<Long> encode(ArgbImage image, File file, String format, DoubleConsumer progress) {
+        return new FutureTask<>(() -> {
+            try {
+                return ImageCodec.write(image, file, format, progress);
+            } catch (Exception e) {
+                throw new ExportException(file, e);
+            }
+        });
+    }
+
+    /**
+     * Wait for the encodes, running any the pool has not started yet on this thread, so an export
+     * thread waiting on its own pool cannot starve it
+     *
+     * @return total number of bytes written
+     */
+    private static long finish(List<FutureTask<Long>> encodes) {
+        long bytes = 0;
+        for (FutureTask<Long> encode : encodes) {
+            encode.run();
+        }
+        for (FutureTask<Long> encode : encodes) {
+            try {
+                bytes += encode.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : new CompletionException(e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Export interrupted");
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Progress of output index reported as the average over all outputs
+     */
+    private static DoubleConsumer averaged(DoubleConsumer progress, double[] fractions, int index) {
+        return progress == null ? null : fraction -> {
+            double average;
+            synchronized (fractions) {
+                fractions[index] = fraction;
+                average = Arrays.stream(fractions).sum() / fractions.length;
+            }
+            progress.accept(average);
+        };
+    }
+
+    /**
+     * Re-read the source file strip by strip, filter and encode it in the background, so memory
+     * stays bounded by the strip size. Output must be PNG or BMP, see {@link StreamingFilter}.
+     */
+    public static CompletableFuture<Long> exportStreaming(File source, File file, FilterChain chain,
+                                                          DoubleConsumer progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return StreamingFilter.process(source, file, chain, progress);
+            } catch (Exception e) {
+                throw new ExportException(file, e);
+            }
+        }, EXECUTOR);
+    }
+
+    /**
+     * Failure while exporting a single file
+     */
+    public static final class ExportException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public ExportException(File file, Throwable cause) {
+            super("Could not save " + file.getName() + ": " + cause.getMessage(), cause);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.imageprocessor.io;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.ImageProcessor;
+import com.imageprocessor.core.ImageScaler;
+import com.imageprocessor.core.SharedPixelBuffer;
+import com.imageprocessor.metrics.PerformanceMetrics;
+import javafx.scene.image.Image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Loads images off the UI thread. A low-resolution placeholder, the file's embedded thumbnail or
+ * the first pass of a progressive JPEG or interlaced PNG, is handed over first; the full-resolution
+ * image and its preview proxy follow. Other files show nothing until the full decode is done,
+ * since subsampling them would decode the whole file twice.
+ * Starting another load aborts the decoder of the one in progress, and callbacks of a superseded
+ * load never run.
+ */
+public class ImageLoader {
+
+    /** Longest side of a placeholder taken from a first pass; panels scale it up until the full image arrives */
+    public static final int PLACEHOLDER_SIZE = 256;
+
+    /**
+     * @param preview proxy for the panels, owned by the receiver from then on
+     */
+    public record Loaded(File file, Image original, SharedPixelBuffer preview) {
+    }
+
+    private final RawPixelCache rawPixelCache;
+    private final Executor uiExecutor;
+    private final ExecutorService worker;
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile ImageReader activeReader;
+
+    /**
+     * @param rawPixelCache serves repeat loads without decoding and receives new decodes
+     * @param uiExecutor executor callbacks are handed to, e.g. {@code Platform::runLater}
+     */
+    public ImageLoader(RawPixelCache rawPixelCache, Executor uiExecutor) {
+        this.rawPixelCache = rawPixelCache;
+        this.uiExecutor = uiExecutor;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "image-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Load file in the background, cancelling any load in progress. The callbacks run on the UI
+     * executor, and only while this is still the latest load.
+     *
+     * @param previewWidth  width the preview proxy must fit in
+     * @param previewHeight height the preview proxy must fit in
+     * @param onPlaceholder receives a low-resolution stand-in, only for large files with an embedded
+     *                      thumbnail or several decode passes
+     */
+    public void load(File file, int previewWidth, int previewHeight, Consumer<Image> onPlaceholder,
+                     Consumer<Loaded> onLoaded, Consumer<Throwable> onFailure) {
+        int id = cancelCurrent();
+        worker.execute(() -> {
+            if (id != generation.get()) return;
+            try {
+                ArgbImage full = cached(file);
+                if (full == null) {
+                    full = decode(id, file, onPlaceholder);
+                    if (full == null) return;
+                    ArgbImage decoded = full;
+                    rawPixelCache.putAsync(file, () -> decoded);
+                }
+                // Opaque images are shown from the decoded array itself, so the original is held once
+                SharedPixelBuffer shared = SharedPixelBuffer.wrapOpaque(full.getPixels(), full.getWidth(), full.getHeight());
+                Image original = shared != null ? shared.getImage() : ImageProcessor.toFXImage(full);
+                ArgbImage fitted = ImageScaler.fit(full, previewWidth, previewHeight);
+                SharedPixelBuffer preview = SharedPixelBuffer.fromPixels(fitted.getPixels(), fitted.getWidth(), fitted.getHeight());
+                Loaded loaded = new Loaded(file, original, preview);
+                deliver(id, () -> onLoaded.accept(loaded));
+            } catch (Exception e) {
+                deliver(id, () -> onFailure.accept(e));
+            }
+        });
+    }
+
+    /**
+     * Abandon the load in progress; its callbacks will not run
+     */
+    public void cancel() {
+        cancelCurrent();
+    }
+
+    public void shutdown() {
+        cancelCurrent();
+        worker.shutdownNow();
+    }
+
+    private int cancelCurrent() {
+        int id = generation.incrementAndGet();
+        ImageReader reader = activeReader;
+        if (reader != null) {
+            reader.abort();
+        }
+        return id;
+    }
+
+    private ArgbImage cached(File file) {
+        try {
+            return rawPixelCache.get(file);
+        } catch (IOException e) {
+            // Fall back to decoding the file
+            return null;
+        }
+    }
+
+    /**
+     * Placeholder then full image from one reader, or null once superseded
+     */
+    private ArgbImage decode(int id, File file, Consumer<Image> onPlaceholder) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = StreamingFilter.openReader(input, file, false);
+            // Published before the check, so a cancel either sees the reader or is seen here
+            activeReader = reader;
+            try {
+                if (id != generation.get()) return null;
+                if (Math.max(reader.getWidth(0), reader.getHeight(0)) >= 2 * PLACEHOLDER_SIZE) {
+                    if (reader.readerSupportsThumbnails() && reader.getNumThumbnails(0) > 0) {
+                        ArgbImage thumbnail = ImageCodec.fromBufferedImage(reader.readThumbnail(0, 0));
+                        if (id != generation.get()) return null;
+                        Image image = ImageProcessor.toFXImage(thumbnail);
+                        deliver(id, () -> onPlaceholder.accept(image));
+                    } else {
+                        reader.addIIOReadUpdateListener(new FirstPassPlaceholder(id, onPlaceholder));
+                    }
+                }
+
+                PerformanceMetrics.Measurement measurement =
+                    PerformanceMetrics.start(PerformanceMetrics.DECODE, ImageCodec.formatOf(file));
+                ArgbImage full = ImageCodec.fromBufferedImage(reader.read(0));
+                // An aborted read returns whatever it had decoded
+                if (id != generation.get()) return null;
+                measurement.stop(full.getPixelCount());
+                return full;
+            } finally {
+                activeReader = null;
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Hands over the image as the first pass left it once a second pass starts, so single-pass
+     * files, whose only pass ends with the full decode, never produce one
+     */
+    private final class FirstPassPlaceholder implements IIOReadUpdateListener {
+        private final int id;
+        private final Consumer<Image> onPlaceholder;
+
+        FirstPassPlaceholder(int id, Consumer<Image> onPlaceholder) {
+            this.id = id;
+            this.onPlaceholder = onPlaceholder;
+        }
+
+        @Override
+        public void passStarted(ImageReader source, BufferedImage theImage, int pass, int minPass, int maxPass,
+                                int minX, int minY, int periodX, int periodY, int[] bands) {
+            if (pass == 1 && id == generation.get()) {
+                Image image = ImageProcessor.toFXImage(sampleFirstPass(theImage));
+                deliver(id, () -> onPlaceholder.accept(image));
+            }
+        }
+
+        @Override
+        public void imageUpdate(ImageReader source, BufferedImage theImage, int minX, int minY, int width, int height,
+                                int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void passComplete(ImageReader source, BufferedImage theImage) {
+        }
+
+        @Override
+        public void thumbnailPassStarted(ImageReader source, BufferedImage theThumbnail, int pass, int minPass,
+                                         int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailUpdate(ImageReader source, BufferedImage theThumbnail, int minX, int minY, int width,
+                                    int height, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailPassComplete(ImageReader source, BufferedImage theThumbnail) {
+        }
+    }
+
+    /**
+     * Placeholder-sized sample of a partly decoded image. Samples sit on multiples of 8, the
+     * only pixels the first Adam7 pass fills; a progressive JPEG's first pass fills every pixel.
+     */
+    private static ArgbImage sampleFirstPass(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] size = ImageScaler.fitSize(width, height, PLACEHOLDER_SIZE, PLACEHOLDER_SIZE);
+        int[] pixels = new int[size[0] * size[1]];
+        for (int y = 0; y < size[1]; y++) {
+            int sourceY = (int) ((long) y * height / size[1]) & ~7;
+            for (int x = 0; x < size[0]; x++) {
+                int sourceX = (int) ((long) x * width / size[0]) & ~7;
+                pixels[y * size[0] + x] = image.getRGB(sourceX, sourceY);
+            }
+        }
+        return new ArgbImage(size[0], size[1], pixels);
+    }
+
+    private void deliver(int id, Runnable callback) {
+        uiExecutor.execute(() -> {
+            if (id == generation.get()) {
+                callback.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,245 @@
+package com.imageprocessor.io;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.metrics.PerformanceMetrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of decoded ARGB pixels, memory-mapped on reuse so reopening an image skips
+ * the PNG/JPEG decode. Entries are keyed by source path, modification time and size, and the
+ * least recently used files are deleted once the cache grows past its size cap.
+ */
+public class RawPixelCache {
+
+    public static final Path DEFAULT_DIRECTORY = Path.of(System.getProperty("imageprocessor.rawcache.dir",
+        System.getProperty("user.home") + File.separator + ".cache" + File.separator + "imageprocessor"));
+    public static final long DEFAULT_MAX_BYTES = Long.getLong("imageprocessor.rawcache.mb", 2048) * 1024 * 1024;
+
+    private static final int MAGIC = 0x49505257; // "IPRW"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 4;
+    private static final String EXTENSION = ".argb";
+    /** One mapping is limited to 2 GB, so larger images (over ~536 MP) are not cached */
+    private static final long MAX_ENTRY_BYTES = Integer.MAX_VALUE;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "raw-cache-writer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    public RawPixelCache() {
+        this(DEFAULT_DIRECTORY, DEFAULT_MAX_BYTES);
+    }
+
+    public RawPixelCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Cached pixels for the source, or decode the file and cache the result
+     */
+    public ArgbImage load(File source) throws IOException {
+        ArgbImage cached = get(source);
+        if (cached != null) {
+            return cached;
+        }
+        ArgbImage decoded = ImageCodec.read(source);
+        put(source, decoded);
+        return decoded;
+    }
+
+    /**
+     * Copy the cached pixels into a heap image, or null on a miss
+     */
+    public ArgbImage get(File source) throws IOException {
+        PerformanceMetrics.Measurement measurement = PerformanceMetrics.start(PerformanceMetrics.DECODE, "raw");
+        MappedPixels mapped = map(source);
+        if (mapped == null) {
+            return null;
+        }
+        int[] pixels = new int[mapped.width() * mapped.height()];
+        mapped.pixels().get(pixels);
+        measurement.stop(pixels.length);
+        return new ArgbImage(mapped.width(), mapped.height(), pixels);
+    }
+
+    /**
+     * Read-only view of cached pixels mapped straight from disk, or null on a miss
+     */
+    public MappedPixels map(File source) throws IOException {
+        Path entry = entryFor(source);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_ENTRY_BYTES) {
+                Files.deleteIfExists(entry);
+                return null;
+            }
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            IntBuffer ints = bytes.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+            if (ints.remaining() < HEADER_INTS || ints.get(0) != MAGIC || ints.get(1) != VERSION) {
+                Files.deleteIfExists(entry);
+                return null;
+            }
+            int width = ints.get(2);
+            int height = ints.get(3);
+            if ((long) width * height != ints.remaining() - HEADER_INTS) {
+                Files.deleteIfExists(entry);
+                return null;
+            }
+            touch(entry);
+            IntBuffer pixels = ints.position(HEADER_INTS).slice().asReadOnlyBuffer();
+            return new MappedPixels(width, height, pixels);
+        }
+    }
+
+    /**
+     * Store decoded pixels for the source, then trim the cache to its size cap
+     */
+    public void put(File source, ArgbImage image) throws IOException {
+        long bytes = (HEADER_INTS + (long) image.getPixelCount()) * 4;
+        if (bytes > maxBytes || bytes > MAX_ENTRY_BYTES) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Path entry = entryFor(source);
+        Path temp = Files.createTempFile(directory, "entry", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                IntBuffer ints = out.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+                ints.put(MAGIC).put(VERSION).put(image.getWidth()).put(image.getHeight());
+                ints.put(image.getPixels(), 0, image.getPixelCount());
+                out.force();
+            }
+            // Readers only ever see complete entries
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        evict();
+    }
+
+    /**
+     * Store in the background; the supplier runs on the cache writer thread
+     */
+    public void putAsync(File source, Supplier<ArgbImage> image) {
+        writer.execute(() -> {
+            try {
+                put(source, image.get());
+            } catch (IOException | RuntimeException e) {
+                // The cache is an optimisation only, a failed write just means a later decode
+            }
+        });
+    }
+
+    /**
+     * Delete least recently used entries until the cache fits its size cap
+     */
+    public synchronized void evict() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> path.getFileName().toString().endsWith(EXTENSION)).forEach(entries::add);
+        }
+        entries.sort(Comparator.comparing(RawPixelCache::lastUsed));
+
+        long total = 0;
+        for (Path entry : entries) {
+            total += Files.size(entry);
+        }
+        for (Path entry : entries) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = Files.size(entry);
+            Files.deleteIfExists(entry);
+            total -= size;
+        }
+    }
+
+    public synchronized void clear() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path entry : (Iterable<Path>) files::iterator) {
+                if (entry.getFileName().toString().endsWith(EXTENSION)) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private Path entryFor(File source) throws IOException {
+        Path path = source.toPath().toRealPath();
+        String key = path + "|" + Files.getLastModifiedTime(path).toMillis() + "|" + Files.size(path);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return directory.resolve(HexFormat.of().formatHex(digest, 0, 16) + EXTENSION);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Access order is kept in the entry's modification time */
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // Recency is best effort
+        }
+    }
+
+    private static FileTime lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Pixels mapped from a cache entry, packed non-premultiplied ARGB
+     */
+    public record MappedPixels(int width, int height, IntBuffer pixels) {
+    }
+}
@@ -0,0 +1,491 @@
+package com.imageprocessor.io;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.metrics.PerformanceMetrics;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Filters a numbered frame sequence, such as a capture rig's PNG or JPEG directory, through a
+ * decode, filter and encode pipeline with one thread per stage. Frames travel through a fixed
+ * ring of buffers that the decoder writes into directly, so once the ring is sized no frame-sized
+ * buffer is allocated per frame. Neighbourhood filters still allocate a few rows of working
+ * memory per band, and content-adaptive steps after other filters render that prefix to analyse
+ * it, see {@link FilterChain#renderInPlace}. Runs as fast as the slowest stage, or paced to a
+ * target frame rate for display.
+ */
+public class SequenceProcessor {
+
+    /** Frames in flight: one per stage plus one waiting between stages */
+    public static final int RING_SIZE = 4;
+
+    /** Orders frame_2 before frame_10: runs of digits compare by value */
+    public static final Comparator<File> FRAME_ORDER = (a, b) -> compareNatural(a.getName(), b.getName());
+
+    private static final String[] STAGE_NAMES = {"decode", "filter", "encode", "frame"};
+    private static final int DECODE = 0;
+    private static final int FILTER = 1;
+    private static final int ENCODE = 2;
+    /** Decode start to encode end of one frame */
+    private static final int FRAME = 3;
+
+    /**
+     * Receives each filtered frame on the output thread. The pixels are only valid until the
+     * call returns, after which the buffer goes back to the decoder.
+     */
+    @FunctionalInterface
+    public interface FrameListener {
+        void frameFiltered(int index, ArgbImage frame);
+    }
+
+    public record StageLatency(String stage, long count, double meanMillis, double maxMillis) {
+    }
+
+    /**
+     * @param frames      frames through the whole pipeline so far
+     * @param outputNanos time from the first frame out to the latest
+     * @param lateFrames  frames that reached the output after their slot at the target frame rate
+     */
+    public record Report(int frames, int totalFrames, long elapsedNanos, long outputNanos, int lateFrames,
+                         List<StageLatency> stages) {
+
+        /** Sustained frame rate, measured between output frames so filling the pipeline does not count */
+        public double getFps() {
+            if (frames > 1 && outputNanos > 0) {
+                return (frames - 1) * 1e9 / outputNanos;
+            }
+            return elapsedNanos > 0 ? frames * 1e9 / elapsedNanos : 0;
+        }
+
+        /**
+         * One line such as "120 frames in 4.20 s, 28.6 fps; mean decode 12.1 ms, filter 8.3 ms, ..."
+         */
+        public String summary() {
+            StringBuilder text = new StringBuilder(String.format("%d frames in %.2f s, %.1f fps; mean",
+                frames, elapsedNanos / 1e9, getFps()));
+            String separator = " ";
+            for (StageLatency stage : stages) {
+                if (stage.count() > 0) {
+                    text.append(String.format("%s%s %.1f ms", separator, stage.stage(), stage.meanMillis()));
+                    separator = ", ";
+                }
+            }
+            if (lateFrames > 0) {
+                text.append(String.format("; %d late", lateFrames));
+            }
+            return text.toString();
+        }
+    }
+
+    private final List<File> frames;
+    private final FilterChain chain;
+    private File outputDir;
+    private String format;
+    private double targetFps;
+    private volatile FrameListener listener = (index, frame) -> { };
+
+    private final BlockingQueue<Frame> free = new ArrayBlockingQueue<>(RING_SIZE);
+    private final BlockingQueue<Frame> decoded = new ArrayBlockingQueue<>(RING_SIZE);
+    private final BlockingQueue<Frame> filtered = new ArrayBlockingQueue<>(RING_SIZE);
+    private final CompletableFuture<Report> result = new CompletableFuture<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    /** Per stage count, total and max nanos, guarded by itself */
+    private final long[][] latency = new long[STAGE_NAMES.length][3];
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile long firstOutputNanos;
+    private volatile long lastOutputNanos;
+    private volatile int completed;
+    private volatile int late;
+
+    /**
+     * @param frames frames in playback order, see {@link #listFrames}
+     */
+    public SequenceProcessor(List<File> frames, FilterChain chain) {
+        this.frames = List.copyOf(frames);
+        this.chain = chain;
+    }
+
+    /**
+     * Supported images in the directory, in frame order
+     */
+    public static List<File> listFrames(File directory) throws IOException {
+        File[] files = directory.listFiles(file -> file.isFile() && ImageCodec.isSupported(file));
+        if (files == null) {
+            throw new IOException("Cannot list " + directory);
+        }
+        Arrays.sort(files, FRAME_ORDER);
+        return List.of(files);
+    }
+
+    /**
+     * Encode filtered frames to the directory under their source names
+     *
+     * @param format png, jpg or bmp, or null for the first frame's format
+     */
+    public void setOutput(File directory, String format) {
+        this.outputDir = directory;
+        this.format = format;
+    }
+
+    /**
+     * Hold each frame back until its slot at this rate; 0 runs as fast as the pipeline allows
+     */
+    public void setTargetFps(double targetFps) {
+        this.targetFps = targetFps;
+    }
+
+    public void setOnFrame(FrameListener listener) {
+        this.listener = listener != null ? listener : (index, frame) -> { };
+    }
+
+    /**
+     * Start the pipeline threads
+     *
+     * @return future completing with the final report, or exceptionally on failure or {@link #cancel}
+     */
+    public synchronized CompletableFuture<Report> start() {
+        if (startNanos != 0) {
+            throw new IllegalStateException("Sequence already started");
+        }
+        startNanos = System.nanoTime();
+        if (frames.isEmpty()) {
+            endNanos = startNanos;
+            result.complete(snapshot());
+            return result;
+        }
+        for (int i = 0; i < RING_SIZE; i++) {
+            free.add(new Frame());
+        }
+        launch("sequence-decode", this::decodeFrames);
+        launch("sequence-filter", this::filterFrames);
+        launch("sequence-encode", this::outputFrames);
+        return result;
+    }
+
+    /**
+     * Stop after the frames already in progress; the future completes with a CancellationException
+     */
+    public void cancel() {
+        fail(new CancellationException("Sequence cancelled"));
+    }
+
+    /**
+     * Progress and latency so far, callable from any thread while the sequence runs
+     */
+    public Report snapshot() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        List<StageLatency> stages = new ArrayList<>(STAGE_NAMES.length);
+        for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+            synchronized (latency[stage]) {
+                long count = latency[stage][0];
+                stages.add(new StageLatency(STAGE_NAMES[stage], count,
+                    count > 0 ? latency[stage][1] / 1e6 / count : 0, latency[stage][2] / 1e6));
+            }
+        }
+        return new Report(completed, frames.size(), startNanos != 0 ? end - startNanos : 0,
+            lastOutputNanos - firstOutputNanos, late, stages);
+    }
+
+    @FunctionalInterface
+    private interface StageLoop {
+        void run() throws Exception;
+    }
+
+    private void launch(String name, StageLoop loop) {
+        Thread thread = new Thread(() -> {
+            try {
+                loop.run();
+            } catch (InterruptedException e) {
+                // Another stage failed or the sequence was cancelled
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+    }
+
+    private void fail(Throwable error) {
+        if (result.completeExceptionally(error)) {
+            endNanos = System.nanoTime();
+            synchronized (this) {
+                threads.forEach(Thread::interrupt);
+            }
+        }
+    }
+
+    private void record(int stage, long nanos, long pixels) {
+        synchronized (latency[stage]) {
+            latency[stage][0]++;
+            latency[stage][1] += nanos;
+            latency[stage][2] = Math.max(latency[stage][2], nanos);
+        }
+        PerformanceMetrics.record(PerformanceMetrics.SEQUENCE, STAGE_NAMES[stage], pixels, nanos, 0);
+    }
+
+    /**
+     * One ring slot: the decoded pixels, scratch for neighbourhood steps, and the BufferedImage
+     * views over both that the codecs read and write, rebuilt only when the frame size changes
+     */
+    private static final class Frame {
+        int index;
+        File source;
+        long started;
+        int[] result;
+
+        ArgbImage image;
+        ArgbImage scratchImage;
+        BufferedImage rgbTarget;
+        BufferedImage argbTarget;
+        BufferedImage imageOutput;
+        BufferedImage scratchOutput;
+
+        void resize(int width, int height, boolean needsScratch) {
+            if (image != null && image.getWidth() == width && image.getHeight() == height) {
+                return;
+            }
+            image = new ArgbImage(width, height, new int[width * height]);
+            scratchImage = needsScratch ? new ArgbImage(width, height, new int[width * height]) : null;
+            rgbTarget = ImageCodec.toBufferedImage(image, false);
+            argbTarget = ImageCodec.toBufferedImage(image, true);
+            imageOutput = null;
+            scratchOutput = null;
+        }
+
+        ArgbImage output() {
+            return result == image.getPixels() ? image : scratchImage;
+        }
+
+        BufferedImage outputImage(boolean withAlpha) {
+            if (result == image.getPixels()) {
+                if (imageOutput == null) {
+                    imageOutput = ImageCodec.toBufferedImage(image, withAlpha);
+                }
+                return imageOutput;
+            }
+            if (scratchOutput == null) {
+                scratchOutput = ImageCodec.toBufferedImage(scratchImage, withAlpha);
+            }
+            return scratchOutput;
+        }
+    }
+
+    /** Marks the end of the sequence in the stage queues */
+    private static final Frame END = new Frame();
+
+    private void decodeFrames() throws Exception {
+        boolean needsScratch = !chain.isPointwise();
+        ImageReader reader = null;
+        try {
+            for (int i = 0; i < frames.size(); i++) {
+                Frame frame = free.take();
+                File file = frames.get(i);
+                long start = System.nanoTime();
+                try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+                    // One reader for the whole sequence unless the format changes
+                    if (reader != null && input != null && reader.getOriginatingProvider().canDecodeInput(input)) {
+                        reader.setInput(input, true, true);
+                    } else {
+                        if (reader != null) {
+                            reader.dispose();
+                        }
+                        reader = StreamingFilter.openReader(input, file, true);
+                    }
+                    frame.resize(reader.getWidth(0), reader.getHeight(0), needsScratch);
+                    decode(reader, frame);
+                }
+                frame.index = i;
+                frame.source = file;
+                frame.started = start;
+                record(DECODE, System.nanoTime() - start, frame.image.getPixelCount());
+                decoded.put(frame);
+            }
+        } finally {
+            if (reader != null) {
+                reader.dispose();
+            }
+        }
+        decoded.put(END);
+    }
+
+    /**
+     * Decode straight into the frame's pixels when the image is 8-bit RGB or RGBA, as colour
+     * JPEG and PNG frames are; grayscale, palette and 16-bit images go through a temporary image,
+     * and so does BMP, whose decoder can only fill rasters in its own byte layout
+     */
+    private static void decode(ImageReader reader, Frame frame) throws IOException {
+        BufferedImage target = null;
+        ImageTypeSpecifier type = reader.getRawImageType(0);
+        if (type != null && type.getColorModel().getColorSpace().getType() == ColorSpace.TYPE_RGB
+                && type.getSampleModel().getSampleSize(0) == 8
+                && !"bmp".equalsIgnoreCase(reader.getFormatName())) {
+            int bands = type.getNumBands();
+            target = bands == 4 ? frame.argbTarget : bands == 3 ? frame.rgbTarget : null;
+        }
+        int[] pixels = frame.image.getPixels();
+        if (target == null) {
+            int width = frame.image.getWidth();
+            reader.read(0).getRGB(0, 0, width, frame.image.getHeight(), pixels, 0, width);
+            return;
+        }
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setDestination(target);
+        reader.read(0, param);
+        if (target == frame.rgbTarget) {
+            // The RGB view leaves the alpha byte as the previous frame left it
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] |= 0xFF000000;
+            }
+        }
+    }
+
+    private void filterFrames() throws Exception {
+        Frame frame;
+        while ((frame = decoded.take()) != END) {
+            long start = System.nanoTime();
+            int[] scratch = frame.scratchImage != null ? frame.scratchImage.getPixels() : null;
+            frame.result = chain.renderInPlace(frame.image, scratch);
+            record(FILTER, System.nanoTime() - start, frame.image.getPixelCount());
+            filtered.put(frame);
+        }
+        filtered.put(END);
+    }
+
+    private void outputFrames() throws Exception {
+        String outputFormat = format != null ? format : ImageCodec.formatOf(frames.get(0));
+        ImageWriter writer = null;
+        if (outputDir != null) {
+            if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+                throw new IOException("Cannot create " + outputDir);
+            }
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(outputFormat);
+            if (!writers.hasNext()) {
+                throw new IOException("No encoder for format: " + outputFormat);
+            }
+            writer = writers.next();
+        }
+
+        long interval = targetFps > 0 ? (long) (1e9 / targetFps) : 0;
+        long due = 0;
+        try {
+            Frame frame;
+            while ((frame = filtered.take()) != END) {
+                if (interval > 0) {
+                    due = pace(due, interval);
+                }
+                listener.frameFiltered(frame.index, frame.output());
+                if (writer != null) {
+                    long start = System.nanoTime();
+                    encode(writer, frame, new File(outputDir, baseName(frame.source) + "." + outputFormat), outputFormat);
+                    record(ENCODE, System.nanoTime() - start, frame.image.getPixelCount());
+                }
+                long now = System.nanoTime();
+                record(FRAME, now - frame.started, frame.image.getPixelCount());
+                if (completed == 0) {
+                    firstOutputNanos = now;
+                }
+                lastOutputNanos = now;
+                completed++;
+                free.put(frame);
+            }
+        } finally {
+            if (writer != null) {
+                writer.dispose();
+            }
+        }
+        endNanos = System.nanoTime();
+        result.complete(snapshot());
+    }
+
+    /**
+     * Wait for the frame's slot. A frame that is already late is shown at once and the schedule
+     * restarts from it, rather than rushing the following frames to catch up.
+     *
+     * @return when the next frame is due
+     */
+    private long pace(long due, long interval) {
+        long now = System.nanoTime();
+        if (due == 0) {
+            return now + interval;
+        }
+        if (now > due) {
+            late++;
+            return now + interval;
+        }
+        while (now < due) {
+            LockSupport.parkNanos(due - now);
+            now = System.nanoTime();
+        }
+        return due + interval;
+    }
+
+    private static void encode(ImageWriter writer, Frame frame, File file, String format) throws IOException {
+        Files.deleteIfExists(file.toPath());
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(file)) {
+            if (output == null) {
+                throw new IOException("Cannot open " + file + " for writing");
+            }
+            writer.setOutput(output);
+            writer.write(frame.outputImage(ImageCodec.hasAlpha(format)));
+        } finally {
+            writer.reset();
+        }
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(0, dot);
+    }
+
+    private static int compareNatural(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            if (Character.isDigit(a.charAt(i)) && Character.isDigit(b.charAt(j))) {
+                int startA = i;
+                int startB = j;
+                while (i < a.length() && Character.isDigit(a.charAt(i))) i++;
+                while (j < b.length() && Character.isDigit(b.charAt(j))) j++;
+                int order = new BigInteger(a.substring(startA, i)).compareTo(new BigInteger(b.substring(startB, j)));
+                if (order != 0) {
+                    return order;
+                }
+                continue;
+            }
+            int order = Character.compare(a.charAt(i), b.charAt(j));
+            if (order != 0) {
+                return order;
+            }
+            i++;
+            j++;
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+}
@@ -0,0 +1,691 @@
+package com.imageprocessor.io;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.core.ImageScaler;
+import com.imageprocessor.core.ParallelExecutor;
+import com.imageprocessor.metrics.PerformanceMetrics;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.plugins.bmp.BMPImageWriteParam;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Dimension;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Filters images larger than the heap strip by strip: rows are decoded, filtered a strip at a
+ * time, and handed to the encoder as it asks for them. Peak memory is a window of decoded rows
+ * plus one strip of filtered pixels, independent of the image size.
+ * <p>
+ * PNG and JPEG inputs are decoded once, top to bottom, on a background thread that waits
+ * whenever the encoder falls a window behind; interlaced PNGs and progressive JPEGs, which
+ * the decoders fill in several passes, fail with an IOException. BMP inputs are read strip by strip with region
+ * reads, which seek straight to the rows. Output must be PNG or BMP, whose encoders pull rows
+ * incrementally; the JPEG encoder needs the whole raster up front.
+ */
+public final class StreamingFilter {
+
+    /** Default strip budget: 4 M pixels, 16 MB of ARGB */
+    public static final int DEFAULT_STRIP_PIXELS = 4 * 1024 * 1024;
+
+    /** Longest side of the subsampled copy that content-adaptive filters are fitted to */
+    private static final int ANALYSIS_SIZE = 1024;
+
+    /** Images from this many pixels up are saved through the streaming path */
+    public static final long STREAMING_THRESHOLD_PIXELS = Long.getLong("imageprocessor.streaming.mp", 50) * 1_000_000;
+
+    private StreamingFilter() {
+    }
+
+    /**
+     * Whether the encoder for this format can consume rows incrementally
+     */
+    public static boolean supportsOutput(String format) {
+        return "png".equals(format) || "bmp".equals(format);
+    }
+
+    /**
+     * Image dimensions from the file header, without decoding pixels
+     */
+    public static Dimension readSize(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = openReader(input, file, true);
+            try {
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public static long process(File input, File output, FilterChain chain, DoubleConsumer progress) throws IOException {
+        return process(input, output, ImageCodec.formatOf(output), chain, DEFAULT_STRIP_PIXELS, progress);
+    }
+
+    /**
+     * Stream input through the chain into output
+     *
+     * @param progress receives the fraction of rows filtered, may be null
+     * @return number of bytes written
+     */
+    public static long process(File input, File output, String format, FilterChain chain,
+                               int stripPixels, DoubleConsumer progress) throws IOException {
+        if (!supportsOutput(format)) {
+            throw new IOException("Streaming output supports PNG and BMP, not " + format);
+        }
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No encoder for format: " + format);
+        }
+
+        PerformanceMetrics.Measurement measurement = PerformanceMetrics.start(PerformanceMetrics.STREAM, chain.getName());
+        if (chain.isContentAdaptive()) {
+            // The full image is never in memory, so adaptive steps are fitted to a subsampled copy,
+            // with any blur before them scaled down to the copy while it is analysed
+            ArgbImage thumbnail = readThumbnail(input, ANALYSIS_SIZE);
+            double scale = (double) thumbnail.getWidth() / readSize(input).width;
+            chain = chain.scaled(scale).bind(thumbnail, null).scaled(1 / scale);
+        }
+        long pixels;
+        try (ImageInputStream in = ImageIO.createImageInputStream(input)) {
+            ImageReader reader = openReader(in, input, true);
+            ImageWriter writer = writers.next();
+            StripSource source = null;
+            try {
+                source = new StripSource(reader, chain, ImageCodec.hasAlpha(format), stripPixels, progress);
+                pixels = (long) source.getWidth() * source.getHeight();
+
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (param instanceof BMPImageWriteParam bmpParam) {
+                    // Bottom-up BMP would request strips in reverse order
+                    bmpParam.setTopDown(true);
+                }
+
+                Files.deleteIfExists(output.toPath());
+                try (ImageOutputStream out = ImageIO.createImageOutputStream(output)) {
+                    if (out == null) {
+                        throw new IOException("Cannot open " + output + " for writing");
+                    }
+                    writer.setOutput(out);
+                    writer.write(null, new IIOImage(source, null, null), param);
+                } catch (UncheckedIOException e) {
+                    Files.deleteIfExists(output.toPath());
+                    throw e.getCause();
+                } catch (IOException | RuntimeException e) {
+                    Files.deleteIfExists(output.toPath());
+                    throw e;
+                }
+            } finally {
+                if (source != null) {
+                    source.close();
+                }
+                writer.dispose();
+                reader.dispose();
+            }
+        }
+        measurement.stop(pixels);
+        return output.length();
+    }
+
+    /**
+     * Decode a reduced copy of the image that fits in maxSize x maxSize, using decoder
+     * subsampling so the full-resolution raster is never held in memory
+     */
+    public static ArgbImage readThumbnail(File file, int maxSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = openReader(input, file, true);
+            try {
+                int step = Math.max(1, Math.max(reader.getWidth(0), reader.getHeight(0)) / (maxSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                ArgbImage reduced = ImageCodec.fromBufferedImage(reader.read(0, param));
+                return ImageScaler.fit(reduced, maxSize, maxSize);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reader for the input, positioned on its first image
+     *
+     * @param seekForwardOnly whether the input may be discarded once read, false to read it twice
+     */
+    static ImageReader openReader(ImageInputStream input, File file, boolean seekForwardOnly) throws IOException {
+        if (input == null) {
+            throw new IOException("Cannot open " + file);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image format: " + file.getName());
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, seekForwardOnly, true);
+        return reader;
+    }
+
+    /**
+     * Read-only image that decodes and filters one strip at a time as the encoder asks for rows
+     */
+    private static final class StripSource implements RenderedImage {
+        private final RowSource rows;
+        private final FilterChain chain;
+        private final DoubleConsumer progress;
+        private final int width;
+        private final int height;
+        private final int stripRows;
+        /** Rows of context read above and below each strip for neighbourhood filters */
+        private final int halo;
+        private final DirectColorModel colorModel;
+        private final SampleModel sampleModel;
+
+        private final int[] strip;
+        private int currentStrip = -1;
+
+        StripSource(ImageReader reader, FilterChain chain, boolean withAlpha, int stripPixels,
+                    DoubleConsumer progress) throws IOException {
+            this.chain = chain;
+            this.progress = progress;
+            this.width = reader.getWidth(0);
+            this.height = reader.getHeight(0);
+            this.stripRows = Math.max(1, Math.min(height, stripPixels / width));
+            this.halo = chain.getHaloRows();
+            this.colorModel = ImageCodec.colorModel(withAlpha);
+            this.sampleModel = new SinglePixelPackedSampleModel(
+                DataBuffer.TYPE_INT, width, stripRows, colorModel.getMasks());
+            this.strip = new int[width * stripRows];
+
+            int maxRows = Math.min(height, stripRows + 2 * halo);
+            this.rows = "bmp".equalsIgnoreCase(reader.getFormatName())
+                ? new RegionRows(reader, width, maxRows)
+                : SequentialRows.start(reader, maxRows);
+        }
+
+        private void loadStrip(int index) {
+            if (index == currentStrip) {
+                return;
+            }
+            int top = index * stripRows;
+            int count = Math.min(stripRows, height - top);
+            try {
+                if (halo == 0) {
+                    rows.read(top, count, strip);
+                    ParallelExecutor.forEachBand(width, count, (fromRow, toRow) ->
+                        chain.apply(strip, strip, fromRow * width, toRow * width));
+                } else {
+                    // Halo rows make the strip's own rows exact; only the halo itself sees the cut edge
+                    int readTop = Math.max(0, top - halo);
+                    int readRows = Math.min(height, top + count + halo) - readTop;
+                    int[] padded = new int[width * readRows];
+                    rows.read(readTop, readRows, padded);
+                    ArgbImage filtered = chain.render(new ArgbImage(width, readRows, padded));
+                    System.arraycopy(filtered.getPixels(), (top - readTop) * width, strip, 0, count * width);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            currentStrip = index;
+            if (progress != null) {
+                progress.accept((double) (top + count) / height);
+            }
+        }
+
+        void close() {
+            rows.close();
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            Rectangle bounds = rect.intersection(new Rectangle(0, 0, width, height));
+            int[] data = new int[bounds.width * bounds.height];
+            for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+                loadStrip(y / stripRows);
+                int rowInStrip = y - currentStrip * stripRows;
+                System.arraycopy(strip, rowInStrip * width + bounds.x,
+                    data, (y - bounds.y) * bounds.width, bounds.width);
+            }
+            SampleModel model = sampleModel.createCompatibleSampleModel(bounds.width, bounds.height);
+            return Raster.createWritableRaster(model, new DataBufferInt(data, data.length), new Point(bounds.x, bounds.y));
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, width, height));
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            Raster data = getData(raster != null ? raster.getBounds() : new Rectangle(0, 0, width, height));
+            if (raster == null) {
+                return (WritableRaster) data;
+            }
+            raster.setRect(data);
+            return raster;
+        }
+
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            return getData(new Rectangle(0, tileY * stripRows, width, Math.min(stripRows, height - tileY * stripRows)));
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return colorModel;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return sampleModel;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return (height + stripRows - 1) / stripRows;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return stripRows;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+
+    /**
+     * The image's rows as packed ARGB, asked for top to bottom
+     */
+    private interface RowSource {
+        /**
+         * Copy rows [top, top + rows) into target. Rows above top are not asked for again.
+         */
+        void read(int top, int rows, int[] target) throws IOException;
+
+        void close();
+    }
+
+    /**
+     * Rows through source-region reads, for BMP, whose decoder seeks straight to the rows
+     */
+    private static final class RegionRows implements RowSource {
+        private final ImageReader reader;
+        private final int width;
+        private final ImageReadParam param;
+        private final BufferedImage target;
+
+        RegionRows(ImageReader reader, int width, int maxRows) throws IOException {
+            this.reader = reader;
+            this.width = width;
+            // One decode target reused for every strip
+            this.target = reader.getImageTypes(0).next().createBufferedImage(width, maxRows);
+            this.param = reader.getDefaultReadParam();
+            this.param.setDestination(target);
+        }
+
+        @Override
+        public void read(int top, int rows, int[] pixels) throws IOException {
+            param.setSourceRegion(new Rectangle(0, top, width, rows));
+            reader.read(0, param);
+            target.getRGB(0, 0, width, rows, pixels, 0, width);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Rows from a single decode of the whole image on a background thread. The decoder writes
+     * into a full-size destination whose data buffer only holds a window of rows: starting a row
+     * marks the rows above it complete, and waits while the window is full until the encoder
+     * side has moved past the oldest rows. PNG and JPEG decoders would otherwise start from the
+     * top of the file for every strip. Decoders must write rows top to bottom.
+     */
+    private static final class SequentialRows extends DataBuffer implements RowSource {
+        private final ImageReader reader;
+        private final String formatName;
+        private final SampleModel sampleModel;
+        private final ColorModel colorModel;
+        private final int layout;
+        private final int width;
+        private final int height;
+        /** Data elements per image row */
+        private final int stride;
+        /** Rows held, row y lives in slot y % capacity */
+        private final int capacity;
+        private final byte[] bytes;
+        private final int[] ints;
+        private final Thread decoder;
+
+        // Written by the decoder thread only: element range of the row being written
+        private int rowStart;
+        private int rowEnd;
+        private int slotDelta;
+        private int writingRow = -1;
+
+        // Guarded by this
+        private int completeRows;
+        private int releasedRows;
+        private IOException failure;
+        private boolean closed;
+
+        private static final int GENERIC = 0;
+        private static final int INT_RGB = 1;
+        private static final int INT_ARGB = 2;
+        private static final int BYTE_BGR = 3;
+
+        private SequentialRows(ImageReader reader, ImageTypeSpecifier type, SampleModel sampleModel,
+                               int stride, int maxRows) throws IOException {
+            super(sampleModel.getDataType(), stride * reader.getHeight(0));
+            this.reader = reader;
+            this.formatName = reader.getFormatName();
+            this.sampleModel = sampleModel;
+            this.colorModel = type.getColorModel();
+            this.layout = switch (type.getBufferedImageType()) {
+                case BufferedImage.TYPE_INT_RGB -> INT_RGB;
+                case BufferedImage.TYPE_INT_ARGB -> INT_ARGB;
+                case BufferedImage.TYPE_3BYTE_BGR -> BYTE_BGR;
+                default -> GENERIC;
+            };
+            this.width = reader.getWidth(0);
+            this.height = reader.getHeight(0);
+            this.stride = stride;
+            this.capacity = maxRows + 1;
+            if (getDataType() == DataBuffer.TYPE_BYTE) {
+                this.bytes = new byte[capacity * stride];
+                this.ints = null;
+            } else {
+                this.bytes = null;
+                this.ints = new int[capacity * stride];
+            }
+            this.decoder = new Thread(this::decode, "stream-decode");
+            this.decoder.setDaemon(true);
+        }
+
+        /**
+         * Start decoding the reader's first image
+         *
+         * @param maxRows most rows one {@link #read} asks for
+         */
+        static SequentialRows start(ImageReader reader, int maxRows) throws IOException {
+            ImageTypeSpecifier type = destinationType(reader);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            SampleModel sampleModel;
+            try {
+                sampleModel = type.getSampleModel(width, height);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Image of " + width + " x " + height + " is too large for the "
+                    + reader.getFormatName() + " decoder", e);
+            }
+            int stride;
+            if (sampleModel instanceof SinglePixelPackedSampleModel packed) {
+                stride = packed.getScanlineStride();
+            } else if (sampleModel instanceof ComponentSampleModel component
+                    && Arrays.stream(component.getBankIndices()).allMatch(bank -> bank == 0)) {
+                stride = component.getScanlineStride();
+            } else if (sampleModel instanceof MultiPixelPackedSampleModel packed) {
+                stride = packed.getScanlineStride();
+            } else {
+                throw new IOException("Cannot stream " + reader.getFormatName() + " images with this pixel layout");
+            }
+            SequentialRows rows = new SequentialRows(reader, type, sampleModel, stride, maxRows);
+            rows.decoder.start();
+            return rows;
+        }
+
+        /**
+         * Packed int destination when the decoder offers one for the same bands, so each pixel is
+         * one element already in ARGB order, otherwise the decoder's own layout
+         */
+        private static ImageTypeSpecifier destinationType(ImageReader reader) throws IOException {
+            ImageTypeSpecifier raw = reader.getRawImageType(0);
+            ImageTypeSpecifier first = null;
+            for (Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0); types.hasNext(); ) {
+                ImageTypeSpecifier type = types.next();
+                int bufferedType = type.getBufferedImageType();
+                boolean packed = bufferedType == BufferedImage.TYPE_INT_RGB || bufferedType == BufferedImage.TYPE_INT_ARGB;
+                if (packed && raw != null && type.getNumBands() == raw.getNumBands()) {
+                    return type;
+                }
+                if (first == null) {
+                    first = type;
+                }
+            }
+            if (raw != null) {
+                return raw;
+            }
+            if (first == null) {
+                throw new IOException("No destination type for " + reader.getFormatName());
+            }
+            return first;
+        }
+
+        private void decode() {
+            IOException error = null;
+            try {
+                ImageReadParam param = reader.getDefaultReadParam();
+                WritableRaster raster = Raster.createWritableRaster(sampleModel, this, null);
+                param.setDestination(new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null));
+                reader.read(0, param);
+            } catch (IOException e) {
+                error = e;
+            } catch (CancellationException e) {
+                // Closed by the encoder side
+            } catch (RuntimeException e) {
+                error = new IOException(e.getMessage(), e);
+            }
+            synchronized (this) {
+                failure = error;
+                if (error == null) {
+                    completeRows = height;
+                }
+                closed = true;
+                notifyAll();
+            }
+        }
+
+        @Override
+        public int getElem(int bank, int i) {
+            int row = i / stride;
+            int index = (row % capacity) * stride + i - row * stride;
+            return bytes != null ? bytes[index] & 0xFF : ints[index];
+        }
+
+        @Override
+        public void setElem(int bank, int i, int value) {
+            if (i < rowStart || i >= rowEnd) {
+                startRow(i / stride);
+            }
+            if (bytes != null) {
+                bytes[i + slotDelta] = (byte) value;
+            } else {
+                ints[i + slotDelta] = value;
+            }
+        }
+
+        /**
+         * Called by the decoder on its first write to a row
+         */
+        private synchronized void startRow(int row) {
+            if (row < writingRow || row > writingRow + 1) {
+                throw new IllegalStateException("The " + formatName
+                    + " decoder does not write rows in order (interlaced PNG or progressive JPEG), it cannot be streamed");
+            }
+            while (!closed && row >= releasedRows + capacity) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException();
+                }
+            }
+            if (closed) {
+                throw new CancellationException();
+            }
+            writingRow = row;
+            completeRows = row;
+            notifyAll();
+            rowStart = row * stride;
+            rowEnd = rowStart + stride;
+            slotDelta = (row % capacity) * stride - rowStart;
+        }
+
+        @Override
+        public void read(int top, int rows, int[] target) throws IOException {
+            synchronized (this) {
+                releasedRows = top;
+                notifyAll();
+                while (failure == null && !closed && completeRows < top + rows) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while decoding");
+                    }
+                }
+                if (failure != null) {
+                    throw new IOException(failure.getMessage(), failure);
+                }
+                if (completeRows < top + rows) {
+                    throw new IOException("Decoding stopped");
+                }
+            }
+            for (int y = top; y < top + rows; y++) {
+                convertRow(y, target, (y - top) * width);
+            }
+        }
+
+        private void convertRow(int y, int[] target, int offset) {
+            int base = (y % capacity) * stride;
+            switch (layout) {
+                case INT_RGB -> {
+                    for (int x = 0; x < width; x++) {
+                        target[offset + x] = 0xFF000000 | ints[base + x];
+                    }
+                }
+                case INT_ARGB -> System.arraycopy(ints, base, target, offset, width);
+                case BYTE_BGR -> {
+                    for (int x = 0, i = base; x < width; x++, i += 3) {
+                        target[offset + x] = 0xFF000000 | (bytes[i + 2] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | bytes[i] & 0xFF;
+                    }
+                }
+                default -> {
+                    Object pixel = null;
+                    for (int x = 0; x < width; x++) {
+                        pixel = sampleModel.getDataElements(x, y, pixel, this);
+                        target[offset + x] = colorModel.getRGB(pixel);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            reader.abort();
+            try {
+                // The reader is disposed next, which must not happen mid-decode
+                decoder.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
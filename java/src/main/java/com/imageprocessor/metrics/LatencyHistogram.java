@@ -0,0 +1,121 @@
+package com.imageprocessor.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets, plus throughput and
+ * allocation totals. Percentiles are interpolated within a bucket, so they are accurate to
+ * within a factor of two of the bucket width.
+ */
+public final class LatencyHistogram implements LatencyStatsMXBean {
+
+    /** Bucket i holds latencies in [2^(i-1), 2^i) microseconds, bucket 0 anything under 1 us */
+    private static final int BUCKETS = 40;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder totalPixels = new LongAdder();
+    private final LongAdder totalAllocated = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos, long pixels, long allocatedBytes) {
+        long micros = Math.max(0, nanos) / 1000;
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets[bucket].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        totalPixels.add(pixels);
+        totalAllocated.add(Math.max(0, allocatedBytes));
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        totalPixels.reset();
+        totalAllocated.reset();
+        maxNanos.set(0);
+    }
+
+    /**
+     * Latency below which the given fraction (0..1) of samples fall
+     */
+    public double percentileMillis(double fraction) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        double rank = fraction * total;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0 && seen + counts[i] >= rank) {
+                double low = i == 0 ? 0 : 1L << (i - 1);
+                double high = 1L << i;
+                double within = (rank - seen) / counts[i];
+                double micros = low + (high - low) * within;
+                return Math.min(micros / 1000.0, getMaxMillis());
+            }
+            seen += counts[i];
+        }
+        return getMaxMillis();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentileMillis(0.50);
+    }
+
+    @Override
+    public double getP95Millis() {
+        return percentileMillis(0.95);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileMillis(0.99);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    @Override
+    public double getMegapixelsPerSecond() {
+        long nanos = totalNanos.sum();
+        return nanos == 0 ? 0 : totalPixels.sum() * 1000.0 / nanos;
+    }
+
+    @Override
+    public long getAllocatedBytesPerCall() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalAllocated.sum() / n;
+    }
+}
@@ -0,0 +1,23 @@
+package com.imageprocessor.metrics;
+
+/**
+ * JMX view of one latency histogram
+ */
+public interface LatencyStatsMXBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    double getMegapixelsPerSecond();
+
+    long getAllocatedBytesPerCall();
+}
@@ -0,0 +1,21 @@
+package com.imageprocessor.metrics;
+
+/**
+ * JMX controls for {@link PerformanceMetrics}
+ */
+public interface MetricsControlMXBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * Zero every histogram
+     */
+    void reset();
+
+    /**
+     * All histograms as CSV lines, header first
+     */
+    String[] getCsv();
+}
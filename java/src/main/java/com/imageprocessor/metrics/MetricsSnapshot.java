@@ -0,0 +1,31 @@
+package com.imageprocessor.metrics;
+
+import java.util.Locale;
+
+/**
+ * Point-in-time statistics of one operation, name and size class
+ */
+public record MetricsSnapshot(String operation, String name, String sizeClass, long count,
+                              double meanMillis, double p50Millis, double p95Millis, double p99Millis,
+                              double maxMillis, double megapixelsPerSecond, long allocatedBytesPerCall) {
+
+    static final String CSV_HEADER =
+        "operation,name,size,count,mean_ms,p50_ms,p95_ms,p99_ms,max_ms,mp_per_s,alloc_bytes_per_call";
+
+    String toCsv() {
+        return String.join(",", quote(operation), quote(name), quote(sizeClass), Long.toString(count),
+            format(meanMillis), format(p50Millis), format(p95Millis), format(p99Millis), format(maxMillis),
+            format(megapixelsPerSecond), Long.toString(allocatedBytesPerCall));
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
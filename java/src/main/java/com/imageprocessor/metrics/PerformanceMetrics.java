@@ -0,0 +1,219 @@
+package com.imageprocessor.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide latency histograms per operation (filter, decode, encode...), name (filter type
+ * or format) and image size class. Each histogram is also published as an MXBean under
+ * {@value #DOMAIN}. Disable with -Dimageprocessor.metrics=false.
+ */
+public final class PerformanceMetrics {
+
+    public static final String DOMAIN = "com.imageprocessor";
+
+    public static final String FILTER = "filter";
+    public static final String CHAIN = "chain";
+    public static final String FAN_OUT = "fanout";
+    public static final String COPY = "copy";
+    public static final String DECODE = "decode";
+    public static final String ENCODE = "encode";
+    public static final String STREAM = "stream";
+    public static final String REQUEST = "request";
+    public static final String SEQUENCE = "sequence";
+
+    private static final long[] SIZE_LIMITS = {256 * 1024, 2_000_000, 8_000_000, 32_000_000};
+    private static final String[] SIZE_CLASSES = {"<=0.25MP", "<=2MP", "<=8MP", "<=32MP", ">32MP"};
+
+    private static final Map<Key, LatencyHistogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+    private static final Measurement DISABLED = new Measurement(null, null, 0, 0);
+
+    private static volatile boolean enabled = !"false".equals(System.getProperty("imageprocessor.metrics"));
+
+    static {
+        register(objectName("type=PerformanceMetrics"), new Control());
+    }
+
+    private PerformanceMetrics() {
+    }
+
+    private record Key(String operation, String name, String sizeClass) {
+    }
+
+    /**
+     * A running measurement, finished with {@link #stop(long)}
+     */
+    public static final class Measurement {
+        private final String operation;
+        private final String name;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private Measurement(String operation, String name, long startNanos, long startAllocated) {
+            this.operation = operation;
+            this.name = name;
+            this.startNanos = startNanos;
+            this.startAllocated = startAllocated;
+        }
+
+        /**
+         * Record the elapsed time for an image of this many pixels
+         */
+        public void stop(long pixels) {
+            if (operation == null) {
+                return;
+            }
+            long elapsed = System.nanoTime() - startNanos;
+            long allocated = startAllocated < 0 ? 0 : allocatedBytes() - startAllocated;
+            record(operation, name, pixels, elapsed, allocated);
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * Start timing an operation. Allocation is counted on the calling thread only; band workers
+     * run allocation-free kernels, so that covers the pixel arrays and images an operation creates.
+     */
+    public static Measurement start(String operation, String name) {
+        if (!enabled) {
+            return DISABLED;
+        }
+        return new Measurement(operation, name, System.nanoTime(), allocatedBytes());
+    }
+
+    public static void record(String operation, String name, long pixels, long nanos, long allocatedBytes) {
+        if (!enabled) {
+            return;
+        }
+        histogram(operation, name, sizeClass(pixels)).record(nanos, pixels, allocatedBytes);
+    }
+
+    public static String sizeClass(long pixels) {
+        for (int i = 0; i < SIZE_LIMITS.length; i++) {
+            if (pixels <= SIZE_LIMITS[i]) {
+                return SIZE_CLASSES[i];
+            }
+        }
+        return SIZE_CLASSES[SIZE_CLASSES.length - 1];
+    }
+
+    /**
+     * Statistics of every histogram with at least one sample, sorted by operation, name and size
+     */
+    public static List<MetricsSnapshot> snapshot() {
+        List<MetricsSnapshot> snapshots = new ArrayList<>();
+        HISTOGRAMS.forEach((key, histogram) -> {
+            if (histogram.getCount() > 0) {
+                snapshots.add(new MetricsSnapshot(key.operation(), key.name(), key.sizeClass(),
+                    histogram.getCount(), histogram.getMeanMillis(), histogram.getP50Millis(),
+                    histogram.getP95Millis(), histogram.getP99Millis(), histogram.getMaxMillis(),
+                    histogram.getMegapixelsPerSecond(), histogram.getAllocatedBytesPerCall()));
+            }
+        });
+        snapshots.sort(Comparator.comparing(MetricsSnapshot::operation)
+            .thenComparing(MetricsSnapshot::name)
+            .thenComparing(snapshot -> List.of(SIZE_CLASSES).indexOf(snapshot.sizeClass())));
+        return snapshots;
+    }
+
+    /**
+     * Write the current snapshot as CSV with a header line
+     */
+    public static void writeCsv(Appendable out) throws IOException {
+        out.append(MetricsSnapshot.CSV_HEADER).append('\n');
+        for (MetricsSnapshot snapshot : snapshot()) {
+            out.append(snapshot.toCsv()).append('\n');
+        }
+    }
+
+    public static void reset() {
+        HISTOGRAMS.values().forEach(LatencyHistogram::reset);
+    }
+
+    private static LatencyHistogram histogram(String operation, String name, String sizeClass) {
+        Key key = new Key(operation, name, sizeClass);
+        LatencyHistogram histogram = HISTOGRAMS.get(key);
+        if (histogram != null) {
+            return histogram;
+        }
+        return HISTOGRAMS.computeIfAbsent(key, k -> {
+            LatencyHistogram created = new LatencyHistogram();
+            register(objectName("type=Latency,operation=" + ObjectName.quote(operation)
+                + ",name=" + ObjectName.quote(name) + ",size=" + ObjectName.quote(sizeClass)), created);
+            return created;
+        });
+    }
+
+    private static String objectName(String properties) {
+        return DOMAIN + ":" + properties;
+    }
+
+    private static void register(String name, Object bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(bean, objectName);
+            }
+        } catch (JMException | SecurityException e) {
+            // Metrics still work in-process without JMX
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean counter && counter.isThreadAllocatedMemorySupported()) {
+            return counter;
+        }
+        return null;
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static final class Control implements MetricsControlMXBean {
+        @Override
+        public boolean isEnabled() {
+            return PerformanceMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean value) {
+            PerformanceMetrics.setEnabled(value);
+        }
+
+        @Override
+        public void reset() {
+            PerformanceMetrics.reset();
+        }
+
+        @Override
+        public String[] getCsv() {
+            StringBuilder csv = new StringBuilder();
+            try {
+                writeCsv(csv);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return csv.toString().split("\n");
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package com.imageprocessor.server;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.core.FilterParameter;
+import com.imageprocessor.core.FilterParams;
+import com.imageprocessor.core.FilterType;
+import com.imageprocessor.core.LinearLight;
+import com.imageprocessor.core.ParallelExecutor;
+import com.imageprocessor.io.ImageCodec;
+import com.imageprocessor.metrics.PerformanceMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local HTTP service for the filter engine, for other processes on the same host.
+ * <pre>
+ *   POST /filter?filter=brightness&amp;factor=1.4   body: PNG, JPEG or BMP; reply: filtered image
+ *   POST /filter?chain=grayscale,contrast&amp;format=jpg
+ *   GET  /filters    filter names and parameters
+ *   GET  /metrics    latency percentiles per operation as CSV
+ *   GET  /health     admission counters
+ * </pre>
+ * Requests beyond the workers plus the admission queue are refused with 429 before their body
+ * is read, and images of more than the pixel limit with 413 before they are decoded. Images too small to split into bands are batched across the filter pool.
+ */
+public class FilterServer {
+
+    public static final int DEFAULT_PORT = 8085;
+    public static final long DEFAULT_MAX_BODY_BYTES = 64L * 1024 * 1024;
+    /** Decoded size limit, so a small compressed body cannot expand to gigabytes of pixels */
+    public static final long DEFAULT_MAX_PIXELS = 100_000_000L;
+
+    /** Threads never taken by admitted requests, so refusals go out while every worker is busy */
+    private static final int REJECT_THREADS = 2;
+    private static final int MAX_BATCH = 64;
+    /** Longest chain accepted */
+    static final int MAX_CHAIN_STEPS = 16;
+
+    private final InetSocketAddress address;
+    private final int workers;
+    private final int queueSize;
+    private final long maxBodyBytes;
+    private final long maxPixels;
+
+    /** Requests being filtered or waiting for a worker; full means 429 */
+    private final Semaphore admission;
+    /** Requests decoding, filtering or encoding */
+    private final Semaphore processing;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private MicroBatcher batcher;
+
+    /**
+     * @param workers   requests processed at once
+     * @param queueSize admitted requests waiting for a worker
+     */
+    public FilterServer(InetSocketAddress address, int workers, int queueSize, long maxBodyBytes) {
+        this(address, workers, queueSize, maxBodyBytes, DEFAULT_MAX_PIXELS);
+    }
+
+    /**
+     * @param maxPixels largest image accepted, width times height
+     */
+    public FilterServer(InetSocketAddress address, int workers, int queueSize, long maxBodyBytes, long maxPixels) {
+        this.address = address;
+        this.workers = workers;
+        this.queueSize = queueSize;
+        this.maxBodyBytes = maxBodyBytes;
+        this.maxPixels = maxPixels;
+        this.admission = new Semaphore(workers + queueSize);
+        this.processing = new Semaphore(workers, true);
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        try {
+            FilterServer filterServer = parse(args);
+            InetSocketAddress bound = filterServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(filterServer::stop, "filter-server-shutdown"));
+            System.out.println("✓ Filter service on http://" + bound.getHostString() + ":" + bound.getPort()
+                + " (" + filterServer.workers + " workers, queue " + filterServer.queueSize + ")");
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage();
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    static FilterServer parse(String[] args) {
+        String host = "127.0.0.1";
+        int port = DEFAULT_PORT;
+        int workers = Runtime.getRuntime().availableProcessors() * 2;
+        int queueSize = -1;
+        long maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+        long maxPixels = DEFAULT_MAX_PIXELS;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--host" -> host = value(args, ++i, arg);
+                case "-p", "--port" -> port = parseInt(value(args, ++i, arg), arg, 0);
+                case "-t", "--threads" -> workers = parseInt(value(args, ++i, arg), arg, 1);
+                case "-q", "--queue" -> queueSize = parseInt(value(args, ++i, arg), arg, 0);
+                case "--max-body-mb" -> maxBodyBytes = parseInt(value(args, ++i, arg), arg, 1) * 1024L * 1024;
+                case "--max-megapixels" -> maxPixels = parseInt(value(args, ++i, arg), arg, 1) * 1_000_000L;
+                case "--linear" -> LinearLight.setEnabled(true);
+                case "-h", "--help" -> {
+                    printUsage();
+                    System.exit(0);
+                }
+                default -> throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (queueSize < 0) {
+            queueSize = workers * 4;
+        }
+        return new FilterServer(new InetSocketAddress(host, port), workers, queueSize, maxBodyBytes, maxPixels);
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    private static int parseInt(String value, String option, int min) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < min) {
+                throw new IllegalArgumentException(option + " must be at least " + min + ": " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a number: " + value);
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("""
+            Usage: FilterServer [options]
+                  --host <addr>      Address to bind (default: 127.0.0.1)
+              -p, --port <n>         Port, 0 for any free port (default: 8085)
+              -t, --threads <n>      Requests processed at once (default: 2 x processor count)
+              -q, --queue <n>        Requests waiting for a worker before 429 (default: 4 x threads)
+                  --max-body-mb <n>  Largest accepted image upload (default: 64)
+                  --max-megapixels <n>
+                                     Largest accepted image once decoded (default: 100)
+                  --linear           Mix Grayscale and Sepia in linear light""");
+    }
+
+    /**
+     * Bind and start serving
+     *
+     * @return the bound address, with the actual port when 0 was requested
+     */
+    public synchronized InetSocketAddress start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        executor = Executors.newFixedThreadPool(workers + queueSize + REJECT_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "http-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        batcher = new MicroBatcher(MAX_BATCH);
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/filter", exchange -> handle(exchange, this::filter));
+        server.createContext("/filters", exchange -> handle(exchange, this::listFilters));
+        server.createContext("/metrics", exchange -> handle(exchange, this::metrics));
+        server.createContext("/health", exchange -> handle(exchange, this::health));
+        server.start();
+        return server.getAddress();
+    }
+
+    /**
+     * Stop accepting requests, give running ones a second to finish, then shut down
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(1);
+        batcher.shutdown();
+        executor.shutdown();
+        server = null;
+    }
+
+    public long getAcceptedCount() {
+        return accepted.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    /**
+     * Client mistake, answered with its status and message
+     */
+    private static final class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) {
+        try {
+            handler.handle(exchange);
+        } catch (IOException e) {
+            // Client went away mid-response; nothing left to tell it
+        } catch (RuntimeException e) {
+            trySend(exchange, 500, "Filter failed: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void filter(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            send(exchange, 405, "POST an image to /filter?filter=<name> or /filter?chain=<a,b,...>");
+            return;
+        }
+        FilterChain chain;
+        String format;
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            chain = parseChain(query);
+            format = query.containsKey("format")
+                ? ImageCodec.formatOf(new File("x." + query.get("format")))
+                : formatOf(exchange.getRequestHeaders().getFirst("Content-Type"));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, e.getMessage());
+            return;
+        }
+
+        if (!admission.tryAcquire()) {
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 429, "Too many requests, retry later");
+            return;
+        }
+        accepted.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            byte[] body = readBody(exchange);
+            processing.acquire();
+            long pixels;
+            try {
+                ArgbImage image = decode(body);
+                pixels = image.getPixelCount();
+                ArgbImage result = apply(image, chain);
+                exchange.getResponseHeaders().set("Content-Type", contentType(format));
+                // Chunked, so the encoder streams straight into the response
+                exchange.sendResponseHeaders(200, 0);
+                ImageCodec.write(result, exchange.getResponseBody(), format);
+            } finally {
+                processing.release();
+            }
+            PerformanceMetrics.record(PerformanceMetrics.REQUEST, metricName(chain), pixels, System.nanoTime() - start, 0);
+        } catch (RequestException e) {
+            send(exchange, e.status, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            send(exchange, 503, "Server is shutting down");
+        } finally {
+            admission.release();
+        }
+    }
+
+    /**
+     * Latency series for the request: the filter name, or the step count for chains, so clients
+     * cannot create a new series with every combination they send
+     */
+    static String metricName(FilterChain chain) {
+        List<FilterType> filters = chain.getFilters();
+        return filters.size() == 1 ? filters.get(0).getDisplayName() : "chain/" + filters.size() + " steps";
+    }
+
+    /**
+     * Small images go to the batcher, larger ones already split into bands across the pool
+     */
+    private ArgbImage apply(ArgbImage image, FilterChain chain) {
+        if (image.getPixelCount() >= ParallelExecutor.getMinParallelPixels()) {
+            return chain.render(image);
+        }
+        try {
+            return batcher.submit(image, chain).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private byte[] readBody(HttpExchange exchange) throws IOException, RequestException {
+        String length = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (length != null) {
+            long declared;
+            try {
+                declared = Long.parseLong(length.trim());
+            } catch (NumberFormatException e) {
+                throw new RequestException(400, "Malformed Content-Length: " + length);
+            }
+            if (declared > maxBodyBytes) {
+                throw new RequestException(413, "Image larger than " + maxBodyBytes + " bytes");
+            }
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes((int) Math.min(maxBodyBytes + 1, Integer.MAX_VALUE - 8));
+            if (body.length > maxBodyBytes) {
+                throw new RequestException(413, "Image larger than " + maxBodyBytes + " bytes");
+            }
+            if (body.length == 0) {
+                throw new RequestException(400, "Request body must be a PNG, JPEG or BMP image");
+            }
+            return body;
+        }
+    }
+
+    private ArgbImage decode(byte[] body) throws RequestException {
+        try {
+            return ImageCodec.read(body, "request body", maxPixels);
+        } catch (ImageCodec.TooLargeException e) {
+            throw new RequestException(413, e.getMessage());
+        } catch (IOException e) {
+            throw new RequestException(415, "Cannot decode the image: " + e.getMessage());
+        }
+    }
+
+    private void listFilters(HttpExchange exchange) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (FilterType filterType : FilterType.values()) {
+            text.append(filterType.name().toLowerCase(Locale.ROOT)).append(" - ").append(filterType.getDescription());
+            for (FilterParameter parameter : filterType.getParameters()) {
+                text.append(String.format(Locale.ROOT, "%n    %s=%.2f (%.2f..%.2f)",
+                    parameter.name(), parameter.defaultValue(), parameter.min(), parameter.max()));
+            }
+            text.append('\n');
+        }
+        send(exchange, 200, text.toString());
+    }
+
+    private void metrics(HttpExchange exchange) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        PerformanceMetrics.writeCsv(csv);
+        exchange.getResponseHeaders().set("Content-Type", "text/csv; charset=utf-8");
+        sendBody(exchange, 200, csv.toString());
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        int admitted = workers + queueSize - admission.availablePermits();
+        int processingNow = workers - processing.availablePermits();
+        send(exchange, 200, "ok\n"
+            + "processing=" + processingNow + "/" + workers + "\n"
+            + "queued=" + Math.max(0, admitted - processingNow) + "/" + queueSize + "\n"
+            + "accepted=" + accepted.get() + "\n"
+            + "rejected=" + rejected.get() + "\n");
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            query.put(key, value);
+        }
+        return query;
+    }
+
+    /**
+     * filter=name with its parameters by name, or chain=a,b,... with default parameters
+     */
+    static FilterChain parseChain(Map<String, String> query) {
+        String filter = query.get("filter");
+        String chain = query.get("chain");
+        if ((filter == null) == (chain == null)) {
+            throw new IllegalArgumentException("Give either filter=<name> or chain=<a,b,...>");
+        }
+        for (String key : query.keySet()) {
+            if (!key.equals("filter") && !key.equals("chain") && !key.equals("format") && chain != null) {
+                throw new IllegalArgumentException("Chains use default parameters, unexpected: " + key);
+            }
+        }
+        if (chain != null) {
+            String[] names = chain.split(",");
+            if (names.length > MAX_CHAIN_STEPS) {
+                throw new IllegalArgumentException("Chains take at most " + MAX_CHAIN_STEPS + " steps");
+            }
+            List<FilterType> steps = new ArrayList<>();
+            for (String name : names) {
+                steps.add(FilterType.fromName(name.trim()));
+            }
+            return FilterChain.of(steps);
+        }
+
+        FilterParams params = FilterParams.defaults(FilterType.fromName(filter.trim()));
+        for (Map.Entry<String, String> entry : query.entrySet()) {
+            String key = entry.getKey();
+            if (key.equals("filter") || key.equals("format")) {
+                continue;
+            }
+            try {
+                params = params.with(key, Double.parseDouble(entry.getValue()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(key + " expects a number: " + entry.getValue());
+            }
+        }
+        return FilterChain.of(params);
+    }
+
+    /**
+     * Reply in the format that was sent unless asked otherwise, PNG when unknown
+     */
+    private static String formatOf(String contentType) {
+        if (contentType == null) {
+            return "png";
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("image/jpeg") || type.startsWith("image/jpg")) {
+            return "jpg";
+        }
+        return type.startsWith("image/bmp") ? "bmp" : "png";
+    }
+
+    private static String contentType(String format) {
+        return switch (format) {
+            case "jpg" -> "image/jpeg";
+            case "bmp" -> "image/bmp";
+            default -> "image/png";
+        };
+    }
+
+    private static void send(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        sendBody(exchange, status, message.endsWith("\n") ? message : message + "\n");
+    }
+
+    private static void sendBody(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Report a failure unless the response has already started
+     */
+    private static void trySend(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        try {
+            send(exchange, status, message);
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+}
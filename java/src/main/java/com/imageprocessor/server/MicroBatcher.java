@@ -0,0 +1,71 @@
+package com.imageprocessor.server;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.core.ParallelExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Groups small images into batches for the filter pool. An image below the parallel threshold
+ * would run on one thread; a batch runs one image per worker instead. Requests that arrive while
+ * a batch runs form the next batch, so nothing waits for a batch to fill.
+ */
+final class MicroBatcher {
+
+    private final int maxBatch;
+    private final BlockingQueue<Job> queue = new LinkedBlockingQueue<>();
+    private final Thread dispatcher;
+
+    private record Job(ArgbImage image, FilterChain chain, CompletableFuture<ArgbImage> result) {
+    }
+
+    MicroBatcher(int maxBatch) {
+        this.maxBatch = maxBatch;
+        this.dispatcher = new Thread(this::dispatch, "filter-batcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    CompletableFuture<ArgbImage> submit(ArgbImage image, FilterChain chain) {
+        CompletableFuture<ArgbImage> result = new CompletableFuture<>();
+        queue.add(new Job(image, chain, result));
+        return result;
+    }
+
+    void shutdown() {
+        dispatcher.interrupt();
+    }
+
+    private void dispatch() {
+        List<Job> batch = new ArrayList<>(maxBatch);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - 1);
+                ParallelExecutor.forEachItem(batch.size(), (from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        Job job = batch.get(i);
+                        try {
+                            job.result().complete(job.chain().render(job.image()));
+                        } catch (Throwable e) {
+                            // Fail the request, not the dispatcher
+                            job.result().completeExceptionally(e);
+                        }
+                    }
+                });
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Job pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(new IllegalStateException("Server is shutting down"));
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.imageprocessor.ui;
 
 import javafx.application.Platform;
-import javafx.concurrent.Task;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
@@ -12,31 +11,66 @@ import javafx.scene.layout.*;
 import javafx.stage.FileChooser;
 import javafx.stage.DirectoryChooser; // Added
 import javafx.stage.Stage;
-import javafx.animation.Timeline; // Added
-import javafx.animation.KeyFrame; // Added
+import javafx.animation.PauseTransition;
+import javafx.util.StringConverter;
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterCache;
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.core.FilterFanOut;
+import com.imageprocessor.core.FilterParameter;
+import com.imageprocessor.core.FilterParams;
+import com.imageprocessor.core.FilterPrefetcher;
 import com.imageprocessor.core.FilterType;
+import com.imageprocessor.core.FrameRateController;
+import com.imageprocessor.core.ImageAnalysis;
 import com.imageprocessor.core.ImageProcessor;
+import com.imageprocessor.core.ImageScaler;
+import com.imageprocessor.core.LinearLight;
+import com.imageprocessor.core.LivePreviewRenderer;
+import com.imageprocessor.core.RenderScheduler;
+import com.imageprocessor.core.SharedPixelBuffer;
+import com.imageprocessor.io.ImageCodec;
+import com.imageprocessor.io.ImageExporter;
+import com.imageprocessor.io.ImageLoader;
+import com.imageprocessor.io.RawPixelCache;
+import com.imageprocessor.io.SequenceProcessor;
+import com.imageprocessor.io.StreamingFilter;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.DoubleConsumer;
 
 /**
  * Main application window
  */
 public class MainWindow {
     
+    private static final int PREVIEW_WIDTH = 400;
+    private static final int PREVIEW_HEIGHT = 350;
+    
     private Stage primaryStage;
+    private File sourceFile;
     private Image originalImage;
+    private Image previewImage;
+    private SharedPixelBuffer previewPixels;
+    /** File being decoded in the background, null when no load is pending */
+    private File loadingFile;
     private Image currentLeftImage;
     private Image currentRightImage;
     
     private FilterType leftFilterIndex = FilterType.ORIGINAL;
     private FilterType rightFilterIndex = FilterType.ORIGINAL;
+    private FilterParams leftParams = FilterParams.defaults(FilterType.ORIGINAL);
     
     private boolean isAnimating = false;
-    private boolean isProcessingLeft = false;
-    private boolean isProcessingRight = false;
     
     private ImageView ivLeft;
     private ImageView ivRight;
@@ -45,18 +79,48 @@ public class MainWindow {
     private Button btnSaveLeft;
     private Button btnSaveRight;
     private Button btnSaveAll;
+    private Button btnExportFilters;
+    private Button btnSequence;
+    private CheckBox chkContactSheet;
+    private CheckBox chkLinearLight;
     private Label lblStatus;
     private Label lblLeftFilter;
     private Label lblRightFilter;
+    private VBox leftParameterBox;
     private ProgressBar progressBar;
-    private Timeline animationTimeline;
+    private ComboBox<Double> cmbTargetFps;
+    private PauseTransition animationDelay;
+    /** Right panel sources per proxy level, index 0 is the preview itself */
+    private final Image[] rightProxies = new Image[FrameRateController.MAX_PROXY_LEVEL + 1];
+    private final FrameRateController frameRate = new FrameRateController();
+    
+    private final FilterCache filterCache = new FilterCache();
+    private final FilterPrefetcher prefetcher = new FilterPrefetcher(filterCache);
+    private final RawPixelCache rawPixelCache = new RawPixelCache();
+    private final ImageLoader imageLoader = new ImageLoader(rawPixelCache, Platform::runLater);
+    private final LivePreviewRenderer livePreview = new LivePreviewRenderer(Platform::runLater);
+    private final RenderScheduler renderScheduler = new RenderScheduler(Platform::runLater);
+    
+    /** Sequence playing in the left panel, null when none */
+    private SequenceProcessor sequence;
+    private SharedPixelBuffer sequenceDisplay;
+    private int[] sequenceFramePixels;
+    /** Held while a copied frame waits for the FX thread; frames arriving meanwhile are not shown */
+    private final Semaphore sequenceFrameFree = new Semaphore(1);
 
     public void show(Stage stage) {
         this.primaryStage = stage;
         primaryStage.setTitle("Image Processor - JavaFX Edition");
         primaryStage.setWidth(1200);
         primaryStage.setHeight(850);
-        primaryStage.setOnCloseRequest(e -> stopAnimation());
+        primaryStage.setOnCloseRequest(e -> {
+            stopAnimation();
+            stopSequence();
+            imageLoader.shutdown();
+            livePreview.shutdown();
+            renderScheduler.shutdown();
+        });
+        livePreview.setOnFrame(this::showLiveFrame);
         
         Scene scene = new Scene(createMainLayout());
         scene.getStylesheets().add(getClass().getResource("/styles.css").toExternalForm());
@@ -74,6 +138,9 @@ public class MainWindow {
         // Images
         root.getChildren().add(createImagesSection());
         
+        // Metrics
+        root.getChildren().add(new MetricsPanel());
+        
         // Progress
         root.getChildren().add(createProgressSection());
         
@@ -127,8 +194,8 @@ public class MainWindow {
         lblTitle.setStyle("-fx-text-fill: #64c8ff; -fx-font-size: 11; -fx-font-weight: bold;");
         
         ImageView iv = new ImageView();
-        iv.setFitWidth(400);
-        iv.setFitHeight(350);
+        iv.setFitWidth(PREVIEW_WIDTH);
+        iv.setFitHeight(PREVIEW_HEIGHT);
         iv.setPreserveRatio(true);
         iv.setStyle("-fx-border-color: #2d2d3d; -fx-border-width: 1;");
         
@@ -139,6 +206,9 @@ public class MainWindow {
         VBox.setVgrow(iv, Priority.ALWAYS);
         
         if (isLeft) {
+            // Sliders for the current filter's parameters, rebuilt on every step
+            leftParameterBox = new VBox(2);
+            panel.getChildren().add(leftParameterBox);
             ivLeft = iv;
             lblLeftFilter = lblFilter;
         } else {
@@ -174,22 +244,58 @@ public class MainWindow {
         btnStep = createButton("⏭️ Step", "#4285f4");
         btnStep.setOnAction(e -> stepLeft());
         btnSaveLeft = createButton("💾 Save Left", "#34a8e0");
-        btnSaveLeft.setOnAction(e -> saveImage(currentLeftImage, "Left_Image"));
-        leftControls.getChildren().addAll(btnStep, btnSaveLeft);
+        btnSaveLeft.setOnAction(e -> saveImage(leftParams, "Left_Image"));
+        btnSequence = createButton("🎞️ Sequence", "#7e57c2");
+        btnSequence.setOnAction(e -> toggleSequence());
+        btnSequence.setTooltip(new Tooltip("Filter a folder of numbered frames with the left filter at the target frame rate"));
+        leftControls.getChildren().addAll(btnStep, btnSaveLeft, btnSequence);
         
         // Center - Save All
         btnSaveAll = createButton("💾 Save All", "#ff9800");
         btnSaveAll.setOnAction(e -> saveAllImages());
+        btnExportFilters = createButton("🗂️ Export Every Filter", "#ff9800");
+        btnExportFilters.setOnAction(e -> exportEveryFilter());
+        chkContactSheet = new CheckBox("Contact sheet");
+        chkContactSheet.setSelected(true);
+        chkContactSheet.setStyle("-fx-text-fill: #999; -fx-font-size: 10;");
+        chkLinearLight = new CheckBox("Linear light");
+        chkLinearLight.setSelected(LinearLight.isEnabled());
+        chkLinearLight.setStyle("-fx-text-fill: #999; -fx-font-size: 10;");
+        chkLinearLight.setTooltip(new Tooltip("Mix Grayscale and Sepia in linear light, keeping midtones bright"));
+        chkLinearLight.selectedProperty().addListener((obs, oldValue, newValue) -> setLinearLight(newValue));
+        HBox centerControls = new HBox(5, btnSaveAll, btnExportFilters, chkContactSheet, chkLinearLight);
+        centerControls.setAlignment(Pos.CENTER);
         
         // Right Controls
         HBox rightControls = new HBox(5);
         btnStartStop = createButton("▶️ Start", "#009688");
         btnStartStop.setOnAction(e -> toggleAnimation());
         btnSaveRight = createButton("💾 Save Right", "#34a8e0");
-        btnSaveRight.setOnAction(e -> saveImage(currentRightImage, "Right_Image"));
-        rightControls.getChildren().addAll(btnStartStop, btnSaveRight);
+        btnSaveRight.setOnAction(e -> saveImage(FilterParams.defaults(rightFilterIndex), "Right_Image"));
+        cmbTargetFps = new ComboBox<>();
+        cmbTargetFps.getItems().addAll(0.5, 1.0, 2.0, 5.0, 10.0, 30.0, 60.0);
+        if (!cmbTargetFps.getItems().contains(frameRate.getTargetFps())) {
+            cmbTargetFps.getItems().add(0, frameRate.getTargetFps());
+        }
+        cmbTargetFps.setConverter(new StringConverter<>() {
+            @Override
+            public String toString(Double fps) {
+                return fps == null ? "" : String.format("%s fps", fps % 1 == 0 ? String.valueOf(fps.intValue()) : fps);
+            }
+            
+            @Override
+            public Double fromString(String text) {
+                return Double.valueOf(text.replace("fps", "").trim());
+            }
+        });
+        cmbTargetFps.setValue(frameRate.getTargetFps());
+        cmbTargetFps.setTooltip(new Tooltip("Auto mode and sequence target frame rate"));
+        cmbTargetFps.valueProperty().addListener((obs, oldValue, newValue) -> {
+            if (newValue != null) frameRate.setTargetFps(newValue);
+        });
+        rightControls.getChildren().addAll(btnStartStop, cmbTargetFps, btnSaveRight);
         
-        controls.getChildren().addAll(leftControls, btnSaveAll, rightControls);
+        controls.getChildren().addAll(leftControls, centerControls, rightControls);
         HBox.setHgrow(leftControls, Priority.ALWAYS);
         HBox.setHgrow(rightControls, Priority.ALWAYS);
         
@@ -226,62 +332,169 @@ public class MainWindow {
         );
         
         File file = fileChooser.showOpenDialog(primaryStage);
-        if (file != null) {
-            try {
-                stopAnimation();
-                originalImage = new Image(file.toURI().toString());
-                
-                currentLeftImage = ImageProcessor.copyImage(originalImage);
-                currentRightImage = ImageProcessor.copyImage(originalImage);
-                
-                leftFilterIndex = FilterType.ORIGINAL;
-                rightFilterIndex = FilterType.ORIGINAL;
-                
+        if (file == null) return;
+        
+        // Panels keep the current image until the new one is decoded; another pick supersedes this load
+        stopAnimation();
+        stopSequence();
+        livePreview.cancel();
+        renderScheduler.cancel(ivLeft);
+        renderScheduler.cancel(ivRight);
+        prefetcher.cancelAll();
+        toggleControls(false);
+        loadingFile = file;
+        showProgress("Loading " + file.getName() + "...");
+        
+        // Panels filter a proxy sized for the view; full resolution is rendered on save
+        double scale = primaryStage.getOutputScaleX();
+        imageLoader.load(file, (int) Math.ceil(PREVIEW_WIDTH * scale), (int) Math.ceil(PREVIEW_HEIGHT * scale),
+            placeholder -> {
+                ivLeft.setImage(placeholder);
+                ivRight.setImage(placeholder);
+            },
+            this::showLoadedImage,
+            error -> {
+                loadingFile = null;
+                hideProgress();
                 ivLeft.setImage(currentLeftImage);
                 ivRight.setImage(currentRightImage);
-                
-                updateFilterLabels("Original", "Original");
-                toggleControls(true);
-                updateStatus("✓ Image loaded successfully", "#4caf50");
-            } catch (Exception e) {
-                showError("Error loading image: " + e.getMessage());
-            }
+                toggleControls(originalImage != null);
+                showError("Error loading image: " + rootCause(error).getMessage());
+            });
+    }
+
+    private void showLoadedImage(ImageLoader.Loaded loaded) {
+        loadingFile = null;
+        Image previousPreview = previewImage;
+        originalImage = loaded.original();
+        sourceFile = loaded.file();
+        filterCache.invalidate(previousPreview);
+        
+        previewPixels = loaded.preview();
+        previewImage = previewPixels.getImage();
+        for (Image proxy : rightProxies) {
+            filterCache.invalidate(proxy);
         }
+        Arrays.fill(rightProxies, null);
+        rightProxies[0] = previewImage;
+        livePreview.setSource(previewImage, proxyScale(previewImage));
+        // Histograms for the content-adaptive filters, ready before they are selected
+        ImageAnalysis.analyzeAsync(previewImage);
+        ImageAnalysis.analyzeAsync(originalImage);
+        
+        // Both panels share the read-only proxy until a filter produces a new image
+        currentLeftImage = previewImage;
+        currentRightImage = previewImage;
+        
+        leftFilterIndex = FilterType.ORIGINAL;
+        rightFilterIndex = FilterType.ORIGINAL;
+        leftParams = FilterParams.defaults(leftFilterIndex);
+        rebuildParameterSliders();
+        
+        ivLeft.setImage(currentLeftImage);
+        ivRight.setImage(currentRightImage);
+        
+        updateFilterLabels("Original", "Original");
+        prefetchNext();
+        toggleControls(true);
+        hideProgress();
+        updateStatus("✓ Image loaded successfully", "#4caf50");
     }
 
     private void stepLeft() {
-        if (originalImage == null || isProcessingLeft) return;
+        if (originalImage == null) return;
         
-        isProcessingLeft = true;
-        btnStep.setDisable(true);
+        // Rapid clicks advance the filter immediately; only the latest render reaches the panel
+        livePreview.cancel();
+        leftFilterIndex = FilterType.getNext(leftFilterIndex);
+        FilterType filterType = leftFilterIndex;
+        Image source = previewImage;
+        double scale = proxyScale(source);
         showProgress("Processing Left Image...");
         
-        Task<Image> task = new Task<Image>() {
-            @Override
-            protected Image call() {
-                leftFilterIndex = FilterType.getNext(leftFilterIndex);
-                return ImageProcessor.applyFilter(originalImage, leftFilterIndex);
-            }
-        };
-        
-        task.setOnSucceeded(e -> {
-            currentLeftImage = task.getValue();
-            ivLeft.setImage(currentLeftImage);
-            updateFilterLabels(leftFilterIndex.getDisplayName(), null);
-            updateStatus("✓ Left: Applied " + leftFilterIndex.getDisplayName(), "#4caf50");
-            isProcessingLeft = false;
-            btnStep.setDisable(false);
-            hideProgress();
-        });
-        
-        task.setOnFailed(e -> {
-            showError("Error processing image");
-            isProcessingLeft = false;
-            btnStep.setDisable(false);
-            hideProgress();
-        });
-        
-        new Thread(task).start();
+        renderScheduler.submit(ivLeft,
+            () -> prefetcher.obtain(ivLeft, source, filterType, scale),
+            image -> {
+                currentLeftImage = image;
+                ivLeft.setImage(currentLeftImage);
+                leftParams = FilterParams.defaults(filterType);
+                rebuildParameterSliders();
+                updateFilterLabels(filterType.getDisplayName(), null);
+                updateStatus("✓ Left: Applied " + filterType.getDisplayName(), "#4caf50");
+                prefetcher.prefetch(ivLeft, source, FilterType.getNext(filterType), scale);
+                hideProgress();
+            },
+            error -> {
+                showError("Error processing image");
+                hideProgress();
+            });
+    }
+
+    private void setLinearLight(boolean enabled) {
+        LinearLight.setEnabled(enabled);
+        // Results are cached per mode, so renders still running store under the old one;
+        // drop those to make room for the new mode
+        prefetcher.cancelAll();
+        filterCache.clear();
+        if (originalImage != null) {
+            livePreview.request(leftParams);
+            prefetchNext();
+        }
+        updateStatus(enabled ? "✓ Linear light on" : "✓ Linear light off", "#4caf50");
+    }
+
+    /**
+     * One slider per parameter of the left filter; dragging re-renders the preview proxy live
+     */
+    private void rebuildParameterSliders() {
+        leftParameterBox.getChildren().clear();
+        FilterType filterType = leftParams.getFilterType();
+        for (int i = 0; i < filterType.getParameters().size(); i++) {
+            FilterParameter parameter = filterType.getParameters().get(i);
+            int index = i;
+            
+            Label lblParameter = new Label();
+            lblParameter.setStyle("-fx-text-fill: #999; -fx-font-size: 9;");
+            Slider slider = new Slider(parameter.min(), parameter.max(), leftParams.get(i));
+            slider.setBlockIncrement(0.01);
+            lblParameter.setText(String.format("%s: %.2f", parameter.label(), slider.getValue()));
+            
+            slider.valueProperty().addListener((obs, oldValue, newValue) -> {
+                // Two decimals is finer than one 8-bit level and keeps the table cache small
+                double value = Math.round(newValue.doubleValue() * 100) / 100.0;
+                lblParameter.setText(String.format("%s: %.2f", parameter.label(), value));
+                if (renderScheduler.isBusy(ivLeft) || value == leftParams.get(index)) return;
+                leftParams = leftParams.with(index, value);
+                livePreview.request(leftParams);
+            });
+            leftParameterBox.getChildren().addAll(lblParameter, slider);
+        }
+    }
+
+    /**
+     * Show a frame rendered by the live preview unless the left panel has moved on since
+     */
+    private void showLiveFrame(FilterParams params) {
+        if (params.getFilterType() != leftParams.getFilterType()) return;
+        currentLeftImage = livePreview.getImage();
+        ivLeft.setImage(currentLeftImage);
+        updateFilterLabels(params.toString(), null);
+    }
+
+    /**
+     * Start computing the next filter of both panels in the background
+     */
+    private void prefetchNext() {
+        double scale = proxyScale(previewImage);
+        prefetcher.prefetch(ivLeft, previewImage, FilterType.getNext(leftFilterIndex), scale);
+        prefetcher.prefetch(ivRight, previewImage, FilterType.getNext(rightFilterIndex), scale);
+    }
+
+    /**
+     * Width of a proxy over that of the original image, which filter radii are given for
+     */
+    private double proxyScale(Image proxy) {
+        return proxy.getWidth() / originalImage.getWidth();
     }
 
     private void toggleAnimation() {
@@ -293,6 +506,7 @@ public class MainWindow {
             btnStartStop.setText("⏹️ Stop");
             btnStartStop.setStyle("-fx-font-size: 10; -fx-padding: 10 15; -fx-background-color: #f44336; -fx-text-fill: white; -fx-font-weight: bold; -fx-cursor: hand;");
             startAnimation();
+            prefetcher.prefetch(ivRight, previewImage, FilterType.getNext(rightFilterIndex), proxyScale(previewImage));
             updateStatus("▶ Animation started", "#2196f3");
         } else {
             btnStartStop.setText("▶️ Start");
@@ -303,19 +517,26 @@ public class MainWindow {
     }
 
     private void startAnimation() {
-        animationTimeline = new Timeline(new KeyFrame(
-            javafx.util.Duration.seconds(1.2),
-            e -> processRightImage()
-        ));
-        animationTimeline.setCycleCount(Timeline.INDEFINITE);
-        animationTimeline.play();
+        frameRate.reset();
+        scheduleNextFrame(0);
+    }
+
+    /**
+     * Auto mode paces itself: the next frame is requested once the previous one is shown,
+     * after whatever remains of the target frame interval
+     */
+    private void scheduleNextFrame(long delayMillis) {
+        animationDelay = new PauseTransition(javafx.util.Duration.millis(delayMillis));
+        animationDelay.setOnFinished(e -> processRightImage());
+        animationDelay.play();
     }
 
     private void stopAnimation() {
         isAnimating = false;
-        if (animationTimeline != null) {
-            animationTimeline.stop();
+        if (animationDelay != null) {
+            animationDelay.stop();
         }
+        prefetcher.cancel(ivRight);
         if (btnStartStop != null) {
             btnStartStop.setText("▶️ Start");
             btnStartStop.setStyle("-fx-font-size: 10; -fx-padding: 10 15; -fx-background-color: #009688; -fx-text-fill: white; -fx-font-weight: bold; -fx-cursor: hand;");
@@ -323,37 +544,171 @@ public class MainWindow {
     }
 
     private void processRightImage() {
-        if (originalImage == null || isProcessingRight) return;
-        
-        isProcessingRight = true;
-        showProgress("Processing Right Image...");
+        if (originalImage == null || !isAnimating || renderScheduler.isBusy(ivRight)) return;
+        
+        rightFilterIndex = FilterType.getNext(rightFilterIndex);
+        FilterType filterType = rightFilterIndex;
+        Image source = rightProxy(frameRate.getProxyLevel());
+        double scale = proxyScale(source);
+        long requested = System.nanoTime();
+        
+        renderScheduler.submit(ivRight,
+            () -> prefetcher.obtain(ivRight, source, filterType, scale),
+            image -> {
+                currentRightImage = image;
+                ivRight.setImage(currentRightImage);
+                updateFilterLabels(null, filterType.getDisplayName());
+                if (isAnimating) {
+                    frameRate.frameRendered(System.nanoTime() - requested);
+                    updateStatus(formatFrameRate(), "#2196f3");
+                    Image next = rightProxy(frameRate.getProxyLevel());
+                    prefetcher.prefetch(ivRight, next, FilterType.getNext(filterType), proxyScale(next));
+                    scheduleNextFrame(frameRate.nextDelayMillis());
+                }
+            },
+            error -> {
+                showError("Error processing image");
+                stopAnimation();
+            });
+    }
+
+    /**
+     * Preview downscaled by 2^level, built on first use; auto mode falls back to these when it
+     * cannot keep up with the target frame rate
+     */
+    private Image rightProxy(int level) {
+        if (rightProxies[level] == null) {
+            ArgbImage preview = ImageProcessor.toArgbImage(previewImage);
+            ArgbImage proxy = ImageScaler.downscale(preview,
+                Math.max(1, preview.getWidth() >> level), Math.max(1, preview.getHeight() >> level));
+            rightProxies[level] = ImageProcessor.toFXImage(proxy);
+        }
+        return rightProxies[level];
+    }
+
+    private String formatFrameRate() {
+        String proxy = frameRate.getProxyLevel() == 0 ? "full preview" : "proxy 1/" + (1 << frameRate.getProxyLevel());
+        return String.format("▶ Auto: %.1f fps (target %s), %.0f ms/frame, %d dropped, %s",
+            frameRate.getAchievedFps(), cmbTargetFps.getConverter().toString(frameRate.getTargetFps()),
+            frameRate.getAverageLatencyMillis(), frameRate.getDroppedFrames(), proxy);
+    }
+
+    /**
+     * Play a folder of numbered frames through the left filter in the left panel, paced to the
+     * target frame rate, optionally saving the filtered frames
+     */
+    private void toggleSequence() {
+        if (sequence != null) {
+            stopSequence();
+            return;
+        }
         
-        Task<Image> task = new Task<Image>() {
-            @Override
-            protected Image call() {
-                rightFilterIndex = FilterType.getNext(rightFilterIndex);
-                return ImageProcessor.applyFilter(originalImage, rightFilterIndex);
-            }
-        };
+        DirectoryChooser dirChooser = new DirectoryChooser();
+        dirChooser.setTitle("Select Frame Folder");
+        File inputDir = dirChooser.showDialog(primaryStage);
+        if (inputDir == null) return;
+        List<File> frames;
+        try {
+            frames = SequenceProcessor.listFrames(inputDir);
+        } catch (IOException e) {
+            showError("Error reading frames: " + e.getMessage());
+            return;
+        }
+        if (frames.isEmpty()) {
+            showError("No PNG, JPEG or BMP frames in " + inputDir.getName());
+            return;
+        }
+        dirChooser.setTitle("Select Folder for Filtered Frames (Cancel to Play Only)");
+        File outputDir = dirChooser.showDialog(primaryStage);
         
-        task.setOnSucceeded(e -> {
-            currentRightImage = task.getValue();
-            ivRight.setImage(currentRightImage);
-            updateFilterLabels(null, rightFilterIndex.getDisplayName());
-            isProcessingRight = false;
+        if (loadingFile != null) {
+            // The sequence takes over the left panel, so a pending load would only overwrite it
+            imageLoader.cancel();
+            loadingFile = null;
             hideProgress();
-        });
+            ivRight.setImage(currentRightImage);
+        }
+        stopAnimation();
+        livePreview.cancel();
+        renderScheduler.cancel(ivLeft);
+        toggleControls(false);
         
-        task.setOnFailed(e -> {
-            isProcessingRight = false;
-            hideProgress();
+        SequenceProcessor processor = new SequenceProcessor(frames, FilterChain.of(leftParams));
+        if (outputDir != null) {
+            processor.setOutput(outputDir, null);
+        }
+        processor.setTargetFps(frameRate.getTargetFps());
+        processor.setOnFrame((index, frame) -> showSequenceFrame(processor, index, frame));
+        sequence = processor;
+        btnSequence.setText("⏹️ Stop Sequence");
+        updateStatus("▶ Sequence: " + frames.size() + " frames from " + inputDir.getName(), "#2196f3");
+        
+        processor.start().whenComplete((report, error) -> Platform.runLater(() -> {
+            if (sequence == processor) {
+                sequence = null;
+            }
+            if (sequence == null) {
+                // Back to the image the left panel showed before, and let the frame buffers go
+                ivLeft.setImage(currentLeftImage);
+                String leftLabel = leftParams.isDefault() ? leftParams.getFilterType().getDisplayName() : leftParams.toString();
+                updateFilterLabels(leftLabel, null);
+                sequenceDisplay = null;
+                sequenceFramePixels = null;
+            }
+            btnSequence.setText("🎞️ Sequence");
+            toggleControls(originalImage != null && loadingFile == null);
+            if (error == null) {
+                String saved = outputDir != null ? " → " + outputDir.getName() : "";
+                updateStatus("✓ Sequence: " + report.summary() + saved, "#4caf50");
+            } else if (rootCause(error) instanceof CancellationException) {
+                updateStatus("⏹ Sequence stopped: " + processor.snapshot().summary(), "#ff9800");
+            } else {
+                showError("Error processing sequence: " + rootCause(error).getMessage());
+            }
+        }));
+    }
+
+    private void stopSequence() {
+        if (sequence != null) {
+            sequence.cancel();
+            sequence = null;
+        }
+    }
+
+    /**
+     * Called on the sequence output thread: copy the frame while its buffer is still valid and
+     * show it unless the FX thread has yet to show the previous one
+     */
+    private void showSequenceFrame(SequenceProcessor processor, int index, ArgbImage frame) {
+        if (!sequenceFrameFree.tryAcquire()) return;
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (sequenceFramePixels == null || sequenceFramePixels.length != frame.getPixelCount()) {
+            sequenceFramePixels = new int[frame.getPixelCount()];
+        }
+        int[] pixels = sequenceFramePixels;
+        System.arraycopy(frame.getPixels(), 0, pixels, 0, pixels.length);
+        Platform.runLater(() -> {
+            try {
+                if (sequence != processor) return;
+                if (sequenceDisplay == null || sequenceDisplay.getWidth() != width || sequenceDisplay.getHeight() != height) {
+                    sequenceDisplay = SharedPixelBuffer.fromPixels(pixels, width, height);
+                } else {
+                    sequenceDisplay.update(pixels);
+                }
+                ivLeft.setImage(sequenceDisplay.getImage());
+                SequenceProcessor.Report report = processor.snapshot();
+                updateFilterLabels(leftParams + " - frame " + (index + 1) + "/" + report.totalFrames(), null);
+                updateStatus("▶ Sequence: " + report.summary(), "#2196f3");
+            } finally {
+                sequenceFrameFree.release();
+            }
         });
-        
-        new Thread(task).start();
     }
 
-    private void saveImage(Image image, String defaultName) {
-        if (image == null) return;
+    private void saveImage(FilterParams params, String defaultName) {
+        Image source = originalImage;
+        if (source == null) return;
         
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save Image");
@@ -366,33 +721,130 @@ public class MainWindow {
         
         File file = fileChooser.showSaveDialog(primaryStage);
         if (file != null) {
-            try {
-                javafx.embed.swing.SwingFXUtils.fromFXImage(image, null);
-                updateStatus("✓ Saved: " + file.getName(), "#4caf50");
-            } catch (Exception e) {
-                showError("Error saving image: " + e.getMessage());
-            }
+            file = withExtension(file, fileChooser.getSelectedExtensionFilter());
+            String fileName = file.getName();
+            showProgress("Saving " + fileName + "...");
+            
+            exportImage(source, params, file, this::updateProgress)
+                .whenComplete((bytes, error) -> Platform.runLater(() -> {
+                    hideProgress();
+                    if (error != null) {
+                        showError("Error saving image: " + rootCause(error).getMessage());
+                    } else {
+                        updateStatus("✓ Saved: " + fileName + " (" + formatBytes(bytes) + ")", "#4caf50");
+                    }
+                }));
         }
     }
 
     private void saveAllImages() {
-        if (currentLeftImage == null || currentRightImage == null) return;
+        Image source = originalImage;
+        FilterParams leftFilter = leftParams;
+        FilterParams rightFilter = FilterParams.defaults(rightFilterIndex);
+        if (source == null) return;
         
         DirectoryChooser dirChooser = new DirectoryChooser();
         dirChooser.setTitle("Select Folder to Save Images");
         
         File directory = dirChooser.showDialog(primaryStage);
         if (directory != null) {
-            try {
-                String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-                // Save implementation would go here
-                updateStatus("✓ All images saved successfully", "#4caf50");
-            } catch (Exception e) {
-                showError("Error saving images: " + e.getMessage());
-            }
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+            File leftFile = new File(directory, "Left_Image_" + timestamp + ".png");
+            File rightFile = new File(directory, "Right_Image_" + timestamp + ".png");
+            showProgress("Saving images...");
+            
+            // Both encodes run concurrently; the bar shows their average progress, updated on the FX thread
+            double[] fractions = new double[2];
+            CompletableFuture<Long> left = exportImage(source, leftFilter, leftFile, fraction -> Platform.runLater(() -> {
+                fractions[0] = fraction;
+                progressBar.setProgress((fractions[0] + fractions[1]) / 2);
+            }));
+            CompletableFuture<Long> right = exportImage(source, rightFilter, rightFile, fraction -> Platform.runLater(() -> {
+                fractions[1] = fraction;
+                progressBar.setProgress((fractions[0] + fractions[1]) / 2);
+            }));
+            
+            left.thenCombine(right, Long::sum)
+                .whenComplete((bytes, error) -> Platform.runLater(() -> {
+                    hideProgress();
+                    if (error != null) {
+                        showError("Error saving images: " + rootCause(error).getMessage());
+                    } else {
+                        updateStatus("✓ All images saved successfully (" + formatBytes(bytes) + ")", "#4caf50");
+                    }
+                }));
+        }
+    }
+
+    /**
+     * Save every filter of the full-resolution image to a folder, rendered from one read of the
+     * source, optionally with a contact sheet of all of them
+     */
+    private void exportEveryFilter() {
+        Image source = originalImage;
+        if (source == null) return;
+        
+        DirectoryChooser dirChooser = new DirectoryChooser();
+        dirChooser.setTitle("Select Folder to Export Every Filter");
+        
+        File directory = dirChooser.showDialog(primaryStage);
+        if (directory != null) {
+            String name = sourceFile != null ? sourceFile.getName().replaceFirst("\\.[^.]*$", "") : "Image";
+            String baseName = name + "_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+            FilterFanOut fanOut = FilterFanOut.all();
+            showProgress("Exporting " + fanOut.size() + " filters...");
+            
+            ImageExporter.exportAll(() -> ImageProcessor.toArgbImage(source), fanOut, directory, baseName, "png",
+                    chkContactSheet.isSelected(), fraction -> Platform.runLater(() -> progressBar.setProgress(fraction)))
+                .whenComplete((bytes, error) -> Platform.runLater(() -> {
+                    hideProgress();
+                    if (error != null) {
+                        showError("Error exporting filters: " + rootCause(error).getMessage());
+                    } else {
+                        updateStatus("✓ Exported every filter to " + directory.getName() + " (" + formatBytes(bytes) + ")", "#4caf50");
+                    }
+                }));
         }
     }
 
+    /**
+     * Render and encode in the background; very large images are streamed from the source file
+     * strip by strip instead of being filtered in memory
+     */
+    private CompletableFuture<Long> exportImage(Image source, FilterParams params, File file, DoubleConsumer progress) {
+        long pixels = (long) source.getWidth() * (long) source.getHeight();
+        if (sourceFile != null && pixels >= StreamingFilter.STREAMING_THRESHOLD_PIXELS
+                && StreamingFilter.supportsOutput(ImageCodec.formatOf(file))) {
+            // Inputs the streaming decoder rejects (interlaced, progressive) are already decoded here
+            return ImageExporter.exportStreaming(sourceFile, file, FilterChain.of(params), progress)
+                .exceptionallyCompose(e ->
+                    ImageExporter.export(() -> ImageProcessor.applyFilter(source, params), file, progress));
+        }
+        return ImageExporter.export(() -> ImageProcessor.applyFilter(source, params), file, progress);
+    }
+
+    private static File withExtension(File file, FileChooser.ExtensionFilter selectedFilter) {
+        if (file.getName().contains(".") || selectedFilter == null) {
+            return file;
+        }
+        String extension = selectedFilter.getExtensions().get(0).substring(1);
+        return new File(file.getParentFile(), file.getName() + extension);
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
     private void updateFilterLabels(String leftFilter, String rightFilter) {
         if (leftFilter != null) {
             lblLeftFilter.setText("Filter: " + leftFilter);
@@ -417,6 +869,10 @@ public class MainWindow {
         });
     }
 
+    private void updateProgress(double fraction) {
+        Platform.runLater(() -> progressBar.setProgress(fraction));
+    }
+
     private void hideProgress() {
         Platform.runLater(() -> {
             progressBar.setVisible(false);
@@ -430,6 +886,8 @@ public class MainWindow {
         btnSaveLeft.setDisable(!enabled);
         btnSaveRight.setDisable(!enabled);
         btnSaveAll.setDisable(!enabled);
+        btnExportFilters.setDisable(!enabled);
+        leftParameterBox.setDisable(!enabled);
     }
 
     private void showError(String message) {
@@ -0,0 +1,89 @@
+package com.imageprocessor.ui;
+
+import com.imageprocessor.metrics.MetricsSnapshot;
+import com.imageprocessor.metrics.PerformanceMetrics;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TitledPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+
+import java.util.function.Function;
+
+/**
+ * Collapsible table of the latency histograms in {@link PerformanceMetrics}, refreshed once a
+ * second while expanded
+ */
+public class MetricsPanel extends TitledPane {
+
+    private final TableView<MetricsSnapshot> table = new TableView<>();
+    private final Timeline refresh = new Timeline(new KeyFrame(Duration.seconds(1), e -> refresh()));
+
+    public MetricsPanel() {
+        setText("📊 Performance Metrics");
+        setExpanded(false);
+        setAnimated(false);
+        setStyle("-fx-text-fill: #64c8ff; -fx-font-size: 10;");
+
+        table.getColumns().add(column("Operation", MetricsSnapshot::operation));
+        table.getColumns().add(column("Name", MetricsSnapshot::name));
+        table.getColumns().add(column("Size", MetricsSnapshot::sizeClass));
+        table.getColumns().add(column("Count", MetricsSnapshot::count));
+        table.getColumns().add(column("p50 ms", snapshot -> format(snapshot.p50Millis())));
+        table.getColumns().add(column("p95 ms", snapshot -> format(snapshot.p95Millis())));
+        table.getColumns().add(column("p99 ms", snapshot -> format(snapshot.p99Millis())));
+        table.getColumns().add(column("Max ms", snapshot -> format(snapshot.maxMillis())));
+        table.getColumns().add(column("MP/s", snapshot -> format(snapshot.megapixelsPerSecond())));
+        table.getColumns().add(column("Alloc/call", snapshot -> formatBytes(snapshot.allocatedBytesPerCall())));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.setPlaceholder(new Label("No operations recorded yet"));
+        table.setPrefHeight(160);
+
+        Button btnReset = new Button("Reset");
+        btnReset.setOnAction(e -> {
+            PerformanceMetrics.reset();
+            refresh();
+        });
+        HBox actions = new HBox(btnReset);
+        actions.setAlignment(Pos.CENTER_RIGHT);
+
+        setContent(new VBox(5, table, actions));
+
+        refresh.setCycleCount(Timeline.INDEFINITE);
+        expandedProperty().addListener((obs, wasExpanded, expanded) -> {
+            if (expanded) {
+                refresh();
+                refresh.play();
+            } else {
+                refresh.stop();
+            }
+        });
+    }
+
+    private void refresh() {
+        table.getItems().setAll(PerformanceMetrics.snapshot());
+    }
+
+    private static <T> TableColumn<MetricsSnapshot, T> column(String title, Function<MetricsSnapshot, T> value) {
+        TableColumn<MetricsSnapshot, T> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(value.apply(cell.getValue())));
+        return column;
+    }
+
+    private static String format(double value) {
+        return String.format("%.2f", value);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,146 @@
+package com.imageprocessor.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static com.imageprocessor.core.PixelKernelsTest.assertArrayEqualsPixels;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Banded, ring-buffered convolution against direct per-pixel references with repeated edges
+ */
+class ConvolutionTest {
+
+    private static int clamp(int v, int max) {
+        return Math.min(Math.max(v, 0), max);
+    }
+
+    /** Mean of the clamped square around (x, y) for the channel at shift */
+    private static double naiveMean(int[] src, int width, int height, int x, int y, int radius, int shift) {
+        long sum = 0;
+        for (int dy = -radius; dy <= radius; dy++) {
+            for (int dx = -radius; dx <= radius; dx++) {
+                int p = src[clamp(y + dy, height - 1) * width + clamp(x + dx, width - 1)];
+                sum += (p >>> shift) & 0xFF;
+            }
+        }
+        int window = 2 * radius + 1;
+        return (double) sum / (window * window);
+    }
+
+    /**
+     * Every channel within one step of the exact mean; the horizontal pass rounds to 8 bits
+     * before the vertical one
+     */
+    private static void assertBlurred(ArgbImage image, int radius) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] src = image.getPixels();
+        int[] dst = Convolution.boxBlur(radius).apply(image).getPixels();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int shift = 0; shift <= 24; shift += 8) {
+                    double expected = naiveMean(src, width, height, x, y, radius, shift);
+                    int actual = (dst[y * width + x] >>> shift) & 0xFF;
+                    assertTrue(Math.abs(expected - actual) <= 1, "radius " + radius + " at " + x + "," + y
+                        + " channel " + shift + ": expected " + expected + " but was " + actual);
+                }
+            }
+        }
+    }
+
+    private static ArgbImage translucentSample(int width, int height, long seed) {
+        ArgbImage image = FilterChainTest.sampleImage(width, height, seed);
+        int[] pixels = image.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (pixels[i] & 0xFFFFFF) | ((i * 37) & 0xFF) << 24;
+        }
+        return image;
+    }
+
+    @Test
+    void boxBlurMatchesClampedMeanAcrossBands() {
+        // Tall enough for several bands, so rows cross band and ring boundaries
+        ArgbImage image = translucentSample(37, 613, 5);
+        for (int radius : new int[] {1, 2, 7}) {
+            assertBlurred(image, radius);
+        }
+    }
+
+    @Test
+    void boxBlurRepeatsEdgesWhenRadiusExceedsImage() {
+        assertBlurred(translucentSample(4, 3, 9), 5);
+        assertBlurred(translucentSample(1, 9, 13), 2);
+    }
+
+    @Test
+    void edgeRowsRepeatTheBorderRow() {
+        int width = 5;
+        int[] pixels = new int[width * 3];
+        Arrays.fill(pixels, 0xFF000000);
+        Arrays.fill(pixels, 0, width, 0xFFFFFFFF);
+        int[] blurred = Convolution.boxBlur(1).apply(new ArgbImage(width, 3, pixels)).getPixels();
+        for (int x = 0; x < width; x++) {
+            // Row 0 averages the repeated white row above, itself and black row 1
+            assertEquals(0xFFAAAAAA, blurred[x]);
+            assertEquals(0xFF555555, blurred[width + x]);
+            assertEquals(0xFF000000, blurred[2 * width + x]);
+        }
+    }
+
+    @Test
+    void sobelMatchesDirectGradient() {
+        ArgbImage image = translucentSample(53, 421, 17);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] src = image.getPixels();
+        int[] luma = new int[src.length];
+        for (int i = 0; i < src.length; i++) {
+            int p = src[i];
+            luma[i] = (((p >> 16) & 0xFF) * 77 + ((p >> 8) & 0xFF) * 150 + (p & 0xFF) * 29) >> 8;
+        }
+        int[] expected = new int[src.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int[] l = new int[9];
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        l[(dy + 1) * 3 + dx + 1] = luma[clamp(y + dy, height - 1) * width + clamp(x + dx, width - 1)];
+                    }
+                }
+                int gx = (l[2] + 2 * l[5] + l[8]) - (l[0] + 2 * l[3] + l[6]);
+                int gy = (l[6] + 2 * l[7] + l[8]) - (l[0] + 2 * l[1] + l[2]);
+                int magnitude = Math.min(255, (int) Math.sqrt(gx * gx + gy * gy));
+                expected[y * width + x] = (src[y * width + x] & 0xFF000000) | magnitude << 16 | magnitude << 8 | magnitude;
+            }
+        }
+        assertArrayEqualsPixels(expected, Convolution.sobel().apply(image).getPixels());
+    }
+
+    @Test
+    void flatImagesAreLeftFlat() {
+        int[] pixels = new int[29 * 31];
+        Arrays.fill(pixels, 0xC0336699);
+        ArgbImage flat = new ArgbImage(29, 31, pixels);
+        assertArrayEqualsPixels(pixels, Convolution.boxBlur(4).apply(flat).getPixels());
+        assertArrayEqualsPixels(pixels, Convolution.sharpen(2, 2.5).apply(flat).getPixels());
+        for (int p : Convolution.sobel().apply(flat).getPixels()) {
+            assertEquals(0xC0000000, p);
+        }
+    }
+
+    @Test
+    void sharpenWithoutAmountKeepsTheSource() {
+        ArgbImage image = translucentSample(41, 97, 21);
+        assertArrayEqualsPixels(image.getPixels(), Convolution.sharpen(3, 0).apply(image).getPixels());
+    }
+
+    @Test
+    void refusesToFilterInPlace() {
+        int[] pixels = new int[16];
+        assertThrows(IllegalArgumentException.class, () -> Convolution.boxBlur(1).apply(pixels, pixels, 4, 4));
+    }
+}
@@ -0,0 +1,103 @@
+package com.imageprocessor.core;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Result cache keys, byte budget and least-recently-used eviction
+ */
+class FilterCacheTest {
+
+    private static final FilterParams INVERT = FilterParams.defaults(FilterType.INVERT);
+    private static final FilterParams BLUR = FilterParams.defaults(FilterType.BLUR);
+
+    /** Bytes the cache counts for a 10x10 image */
+    private static final long IMAGE_BYTES = 10 * 10 * 4;
+
+    private static Image image() {
+        return new WritableImage(10, 10);
+    }
+
+    @Test
+    void secondLookupIsAHit() {
+        FilterCache cache = new FilterCache();
+        Image source = image();
+        Image first = cache.getOrApply(source, INVERT);
+        assertSame(first, cache.getOrApply(source, INVERT));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(IMAGE_BYTES, cache.getSizeBytes());
+    }
+
+    @Test
+    void keysTellSourcesParametersScalesAndModesApart() {
+        FilterCache cache = new FilterCache();
+        Image source = image();
+        Image result = image();
+        cache.put(source, BLUR, 1, false, result);
+        assertTrue(cache.contains(source, BLUR, 1, false));
+        // An equal-looking source is a different image
+        assertFalse(cache.contains(image(), BLUR, 1, false));
+        assertFalse(cache.contains(source, BLUR.with("radius", 5.0), 1, false));
+        assertFalse(cache.contains(source, BLUR, 0.5, false));
+        assertFalse(cache.contains(source, BLUR, 1, true));
+        assertFalse(cache.contains(source, INVERT, 1, false));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverBudget() {
+        FilterCache cache = new FilterCache(3 * IMAGE_BYTES);
+        Image[] sources = {image(), image(), image(), image()};
+        for (int i = 0; i < 3; i++) {
+            cache.put(sources[i], INVERT, 1, false, image());
+        }
+        assertNotNull(cache.get(sources[0], INVERT, 1, false));
+        cache.put(sources[3], INVERT, 1, false, image());
+
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(3 * IMAGE_BYTES, cache.getSizeBytes());
+        assertTrue(cache.contains(sources[0], INVERT, 1, false));
+        assertFalse(cache.contains(sources[1], INVERT, 1, false));
+        assertTrue(cache.contains(sources[3], INVERT, 1, false));
+    }
+
+    @Test
+    void skipsResultsLargerThanTheBudget() {
+        FilterCache cache = new FilterCache(IMAGE_BYTES - 1);
+        Image source = image();
+        cache.put(source, INVERT, 1, false, image());
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSizeBytes());
+        assertNull(cache.get(source, INVERT, 1, false));
+    }
+
+    @Test
+    void invalidateDropsOnlyThatSource() {
+        FilterCache cache = new FilterCache();
+        Image kept = image();
+        Image dropped = image();
+        cache.put(kept, INVERT, 1, false, image());
+        cache.put(dropped, INVERT, 1, false, image());
+        cache.put(dropped, BLUR, 1, false, image());
+        cache.invalidate(dropped);
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(IMAGE_BYTES, cache.getSizeBytes());
+        assertTrue(cache.contains(kept, INVERT, 1, false));
+    }
+
+    @Test
+    void originalIsNeverCached() {
+        FilterCache cache = new FilterCache();
+        Image source = image();
+        assertSame(source, cache.getOrApply(source, FilterType.ORIGINAL));
+        assertEquals(0, cache.getEntryCount());
+    }
+}
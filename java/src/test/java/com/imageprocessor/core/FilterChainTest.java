@@ -0,0 +1,176 @@
+package com.imageprocessor.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.imageprocessor.core.PixelKernelsTest.assertArrayEqualsPixels;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterChainTest {
+
+    /** Noise with a gradient underneath, so tables, matrices and kernels all see varied input */
+    static ArgbImage sampleImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / Math.max(1, width - 1) + random.nextInt(64)) & 0xFF;
+                int g = (y * 255 / Math.max(1, height - 1) + random.nextInt(64)) & 0xFF;
+                int b = random.nextInt(256);
+                pixels[y * width + x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        }
+        return new ArgbImage(width, height, pixels);
+    }
+
+    /** One filter at a time through its own kernel, the way filters ran before chains were fused */
+    private static int[] stepwise(List<FilterType> filters, int[] pixels) {
+        int[] current = pixels.clone();
+        for (FilterType filterType : filters) {
+            int[] next = new int[current.length];
+            PixelKernels.apply(filterType, current, next, 0, current.length);
+            current = next;
+        }
+        return current;
+    }
+
+    @Test
+    void fusedTablesMatchStepwise() {
+        List<FilterType> filters = List.of(FilterType.BRIGHTNESS, FilterType.INVERT, FilterType.CONTRAST);
+        ArgbImage image = sampleImage(97, 61, 1);
+        FilterChain chain = FilterChain.of(filters);
+        assertEquals(1, chain.getStages().size(), "tables fuse into one stage");
+        assertArrayEqualsPixels(stepwise(filters, image.getPixels()), chain.render(image).getPixels());
+    }
+
+    @Test
+    void fusedMatricesMatchStepwiseWithinRounding() {
+        List<FilterType> filters = List.of(FilterType.GRAYSCALE, FilterType.SEPIA);
+        ArgbImage image = sampleImage(97, 61, 2);
+        FilterChain chain = FilterChain.of(filters);
+        assertEquals(1, chain.getStages().size(), "range-preserving matrices fuse into one stage");
+        int[] expected = stepwise(filters, image.getPixels());
+        int[] actual = chain.render(image).getPixels();
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift <= 24; shift += 8) {
+                int difference = ((expected[i] >> shift) & 0xFF) - ((actual[i] >> shift) & 0xFF);
+                // One rounding instead of two
+                assertTrue(Math.abs(difference) <= 1, "pixel " + i);
+            }
+        }
+    }
+
+    @Test
+    void longTableChainStaysOnePass() {
+        List<FilterType> filters = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            filters.addAll(List.of(FilterType.BRIGHTNESS, FilterType.INVERT, FilterType.CONTRAST));
+        }
+        ArgbImage image = sampleImage(53, 47, 6);
+        FilterChain chain = FilterChain.of(filters);
+        assertEquals(1, chain.getStages().size(), "stage count does not grow with the chain");
+        assertArrayEqualsPixels(stepwise(filters, image.getPixels()), chain.render(image).getPixels());
+    }
+
+    @Test
+    void originalStepsCompileToNothing() {
+        assertTrue(FilterChain.of(FilterType.ORIGINAL, FilterType.ORIGINAL).isIdentity());
+        FilterChain chain = FilterChain.of(FilterType.ORIGINAL, FilterType.INVERT, FilterType.ORIGINAL);
+        assertEquals(1, chain.getStages().size());
+        ArgbImage image = sampleImage(31, 29, 7);
+        assertArrayEqualsPixels(stepwise(List.of(FilterType.INVERT), image.getPixels()), chain.render(image).getPixels());
+    }
+
+    @Test
+    void rangeApplyMatchesRender() {
+        List<FilterType> filters = List.of(FilterType.GRAYSCALE, FilterType.CONTRAST, FilterType.SEPIA);
+        ArgbImage image = sampleImage(77, 43, 8);
+        FilterChain chain = FilterChain.of(filters);
+        int[] src = image.getPixels();
+        int[] dst = new int[src.length];
+        // Ranges that split blocks and rows unevenly
+        for (int from = 0; from < src.length; from += 1009) {
+            chain.apply(src, dst, from, Math.min(from + 1009, src.length));
+        }
+        assertArrayEqualsPixels(chain.render(image).getPixels(), dst);
+    }
+
+    @Test
+    void mixedChainMatchesStepwise() {
+        List<FilterType> filters = List.of(FilterType.SEPIA, FilterType.BRIGHTNESS, FilterType.INVERT, FilterType.GRAYSCALE);
+        ArgbImage image = sampleImage(64, 64, 3);
+        assertArrayEqualsPixels(stepwise(filters, image.getPixels()), FilterChain.of(filters).render(image).getPixels());
+    }
+
+    @Test
+    void renderLeavesSourceUntouched() {
+        ArgbImage image = sampleImage(40, 30, 4);
+        int[] before = image.getPixels().clone();
+        FilterChain.of(FilterType.INVERT, FilterType.BLUR, FilterType.SEPIA).render(image);
+        assertArrayEqualsPixels(before, image.getPixels());
+    }
+
+    @Test
+    void renderInPlaceMatchesRender() {
+        List<List<FilterType>> chains = List.of(
+            List.of(FilterType.GRAYSCALE),
+            List.of(FilterType.BLUR),
+            List.of(FilterType.INVERT, FilterType.BLUR, FilterType.SEPIA),
+            List.of(FilterType.SHARPEN, FilterType.CONTRAST, FilterType.EDGE_DETECT),
+            List.of(FilterType.AUTO_LEVELS, FilterType.BLUR, FilterType.AUTO_LEVELS));
+        for (List<FilterType> filters : chains) {
+            FilterChain chain = FilterChain.of(filters);
+            ArgbImage image = sampleImage(83, 57, 5);
+            int[] expected = chain.render(image).getPixels();
+            int[] scratch = new int[image.getPixelCount()];
+            int[] actual = chain.renderInPlace(image, scratch);
+            assertArrayEqualsPixels(expected, actual);
+        }
+    }
+
+    @Test
+    void scaledChainScalesRadii() {
+        FilterParams blur = FilterParams.defaults(FilterType.BLUR).with("radius", 8);
+        FilterParams sharpen = FilterParams.defaults(FilterType.SHARPEN).with("radius", 4);
+        ArgbImage image = sampleImage(61, 47, 6);
+
+        FilterChain scaled = FilterChain.ofParams(List.of(blur, sharpen)).scaled(0.5);
+        FilterChain expected = FilterChain.ofParams(List.of(blur.with("radius", 4), sharpen.with("radius", 2)));
+        assertEquals(expected.getHaloRows(), scaled.getHaloRows());
+        assertArrayEqualsPixels(expected.render(image).getPixels(), scaled.render(image).getPixels());
+
+        // A radius below half a pixel at this size leaves the image as it is
+        FilterChain vanishing = FilterChain.of(blur).scaled(0.05);
+        assertEquals(0, vanishing.getHaloRows());
+        assertArrayEqualsPixels(image.getPixels(), vanishing.render(image).getPixels());
+    }
+
+    @Test
+    void chainKeepsLinearLightModeItWasBuiltWith() {
+        boolean enabled = LinearLight.isEnabled();
+        try {
+            ArgbImage image = sampleImage(48, 32, 7);
+            LinearLight.setEnabled(false);
+            FilterChain srgb = FilterChain.of(FilterType.GRAYSCALE, FilterType.SEPIA);
+            int[] srgbPixels = srgb.render(image).getPixels();
+
+            LinearLight.setEnabled(true);
+            FilterChain linear = FilterChain.of(FilterType.GRAYSCALE, FilterType.SEPIA);
+            int[] linearPixels = linear.render(image).getPixels();
+            assertArrayEqualsPixels(srgbPixels, srgb.render(image).getPixels());
+
+            LinearLight.setEnabled(false);
+            assertArrayEqualsPixels(linearPixels, linear.render(image).getPixels());
+            assertTrue(linear.isLinearLight() && !srgb.isLinearLight());
+            assertFalse(Arrays.equals(srgbPixels, linearPixels));
+        } finally {
+            LinearLight.setEnabled(enabled);
+        }
+    }
+}
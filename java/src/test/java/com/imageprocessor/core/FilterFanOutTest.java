@@ -0,0 +1,39 @@
+package com.imageprocessor.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.imageprocessor.core.FilterChainTest.sampleImage;
+import static com.imageprocessor.core.PixelKernelsTest.assertArrayEqualsPixels;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilterFanOutTest {
+
+    @Test
+    void groupedRenderMatchesEachFilterOnItsOwn() {
+        FilterFanOut fanOut = FilterFanOut.all();
+        ArgbImage source = sampleImage(71, 53, 6);
+        for (int maxLive : new int[] {1, 3, fanOut.size()}) {
+            List<Integer> order = new ArrayList<>();
+            fanOut.render(source, maxLive, (output, index) -> {
+                order.add(index);
+                FilterChain alone = FilterChain.of(fanOut.getOutputs().get(index));
+                assertArrayEqualsPixels(alone.render(source).getPixels(), output.getPixels());
+            });
+            assertEquals(fanOut.size(), order.size());
+            for (int i = 0; i < order.size(); i++) {
+                assertEquals(i, order.get(i));
+            }
+        }
+    }
+
+    @Test
+    void singlePassRenderMatchesGrouped() {
+        FilterFanOut fanOut = FilterFanOut.ofTypes(List.of(FilterType.SEPIA, FilterType.BLUR, FilterType.AUTO_LEVELS));
+        ArgbImage source = sampleImage(64, 40, 7);
+        ArgbImage[] all = fanOut.render(source);
+        fanOut.render(source, 2, (output, index) -> assertArrayEqualsPixels(all[index].getPixels(), output.getPixels()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.imageprocessor.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Parallel histogram counts, percentiles and the Auto Levels table fitted from them
+ */
+class HistogramTest {
+
+    /** Gray ramp of the given levels, one pixel each, so luma equals the level */
+    private static ArgbImage grayRamp(int levels) {
+        int[] pixels = new int[levels];
+        for (int v = 0; v < levels; v++) {
+            pixels[v] = 0xFF000000 | (v << 16) | (v << 8) | v;
+        }
+        return new ArgbImage(levels, 1, pixels);
+    }
+
+    @Test
+    void countsEveryPixelOnceAcrossBands() {
+        ArgbImage image = FilterChainTest.sampleImage(97, 203, 11);
+        Histogram histogram = Histogram.of(image);
+        assertEquals(image.getPixelCount(), histogram.getTotal());
+        for (int channel = Histogram.RED; channel <= Histogram.LUMA; channel++) {
+            long sum = 0;
+            for (int level = 0; level < 256; level++) {
+                sum += histogram.getCount(channel, level);
+            }
+            assertEquals(image.getPixelCount(), sum);
+        }
+        long reds = Arrays.stream(image.getPixels()).filter(p -> ((p >> 16) & 0xFF) == 200).count();
+        assertEquals(reds, histogram.getCount(Histogram.RED, 200));
+    }
+
+    @Test
+    void ignoresSlackAtTheEndOfTheBackingArray() {
+        int[] pixels = new int[4 * 3 + 20];
+        Arrays.fill(pixels, 0xFFFFFFFF);
+        Arrays.fill(pixels, 0, 4 * 3, 0xFF000000);
+        Histogram histogram = Histogram.of(new ArgbImage(4, 3, pixels));
+        assertEquals(12, histogram.getTotal());
+        assertEquals(12, histogram.getCount(Histogram.LUMA, 0));
+        assertEquals(0, histogram.getCount(Histogram.LUMA, 255));
+        assertEquals(0, histogram.percentile(Histogram.LUMA, 1));
+    }
+
+    @Test
+    void percentilesFollowTheCumulativeCounts() {
+        Histogram histogram = Histogram.of(grayRamp(100));
+        assertEquals(0, histogram.percentile(Histogram.LUMA, 0));
+        assertEquals(4, histogram.percentile(Histogram.LUMA, 0.05));
+        assertEquals(49, histogram.percentile(Histogram.LUMA, 0.5));
+        assertEquals(94, histogram.percentile(Histogram.LUMA, 0.95));
+        assertEquals(99, histogram.percentile(Histogram.LUMA, 1));
+        assertEquals(49.5, histogram.mean(Histogram.LUMA), 1e-9);
+    }
+
+    @Test
+    void autoLevelsStretchesBetweenTheClipPercentiles() {
+        LookupTable table = LookupTables.autoLevels(Histogram.of(grayRamp(100)), 5);
+        // 5% and 95% of the ramp fall at levels 4 and 94
+        assertEquals(0, table.red(0));
+        assertEquals(0, table.red(4));
+        assertEquals(128, table.red(49));
+        assertEquals(255, table.red(94));
+        assertEquals(255, table.red(99));
+        assertEquals(table.red(49), table.blue(49));
+    }
+
+    @Test
+    void autoLevelsLeavesFlatImagesAlone() {
+        int[] pixels = new int[64];
+        Arrays.fill(pixels, 0xFF808080);
+        LookupTable table = LookupTables.autoLevels(Histogram.of(new ArgbImage(8, 8, pixels)), 0.5);
+        for (int c = 0; c < 256; c++) {
+            assertEquals(c, table.red(c));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.imageprocessor.core;
+
+import org.junit.jupiter.api.Test;
+
+import static com.imageprocessor.core.PixelKernelsTest.assertArrayEqualsPixels;
+import static com.imageprocessor.core.PixelKernelsTest.edgePixels;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * sRGB gamma tables and colour matrices mixing in linear light
+ */
+class LinearLightTest {
+
+    private static double decode(double srgb) {
+        return srgb <= 0.04045 ? srgb / 12.92 : Math.pow((srgb + 0.055) / 1.055, 2.4);
+    }
+
+    private static double encode(double linear) {
+        return linear <= 0.0031308 ? linear * 12.92 : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+    }
+
+    @Test
+    void everySrgbCodeRoundTrips() {
+        for (int c = 0; c < 256; c++) {
+            assertEquals(c, LinearLight.toSrgb(LinearLight.toLinear(c)), "code " + c);
+        }
+    }
+
+    @Test
+    void tablesFollowTheTransferFunction() {
+        int previous = -1;
+        for (int c = 0; c < 256; c++) {
+            int linear = LinearLight.toLinear(c);
+            assertTrue(linear > previous, "toLinear rises at " + c);
+            assertEquals(decode(c / 255.0) * LinearLight.MAX, linear, 0.5, "toLinear(" + c + ")");
+            previous = linear;
+        }
+        int last = 0;
+        for (int linear = 0; linear <= LinearLight.MAX; linear++) {
+            int srgb = LinearLight.toSrgb(linear);
+            assertTrue(srgb >= last, "toSrgb never falls, at " + linear);
+            assertEquals(encode((double) linear / LinearLight.MAX) * 255, srgb, 1, "toSrgb(" + linear + ")");
+            last = srgb;
+        }
+        assertEquals(0, LinearLight.toSrgb(-1000));
+        assertEquals(255, LinearLight.toSrgb(LinearLight.MAX + 1000));
+    }
+
+    @Test
+    void identityMatrixInLinearLightKeepsPixels() {
+        ColorMatrix identity = new ColorMatrix(new double[] {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0}, true);
+        int[] src = edgePixels();
+        int[] dst = new int[src.length];
+        identity.apply(src, dst, 0, src.length);
+        assertArrayEqualsPixels(src, dst);
+    }
+
+    @Test
+    void grayscaleMixesDecodedChannels() {
+        int[] src = edgePixels();
+        int[] dst = new int[src.length];
+        ColorMatrix.forFilter(FilterType.GRAYSCALE, true).apply(src, dst, 0, src.length);
+        for (int i = 0; i < src.length; i++) {
+            int p = src[i];
+            double y = 0.299 * decode(((p >> 16) & 0xFF) / 255.0) + 0.587 * decode(((p >> 8) & 0xFF) / 255.0)
+                + 0.114 * decode((p & 0xFF) / 255.0);
+            int expected = (int) Math.round(encode(Math.min(y, 1)) * 255);
+            int q = dst[i];
+            String where = "grayscale of " + Integer.toHexString(p) + " gave " + Integer.toHexString(q);
+            assertEquals(p >>> 24, q >>> 24, where);
+            assertEquals(expected, (q >> 16) & 0xFF, 1, where);
+            assertEquals(expected, q & 0xFF, 1, where);
+        }
+    }
+
+    @Test
+    void halfMixOfBlackAndWhiteIsBrighterInLinearLight() {
+        double[] half = {0.5, 0.5, 0, 0, 0.5, 0.5, 0, 0, 0.5, 0.5, 0, 0};
+        int[] src = {0xFFFF0000};
+        int[] srgb = new int[1];
+        int[] linear = new int[1];
+        new ColorMatrix(half, false).apply(src, srgb, 0, 1);
+        new ColorMatrix(half, true).apply(src, linear, 0, 1);
+        assertEquals(128, srgb[0] & 0xFF, 1);
+        // encode(0.5) is 0.735 of full scale
+        assertEquals(188, linear[0] & 0xFF, 1);
+    }
+}
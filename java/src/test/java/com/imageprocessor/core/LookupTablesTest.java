@@ -0,0 +1,70 @@
+package com.imageprocessor.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.function.DoubleUnaryOperator;
+
+import static com.imageprocessor.core.PixelKernelsTest.assertArrayEqualsPixels;
+import static com.imageprocessor.core.PixelKernelsTest.assertMatches;
+import static com.imageprocessor.core.PixelKernelsTest.edgePixels;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Channel-separable filters compiled to 256-entry tables, against their original formulas
+ */
+class LookupTablesTest {
+
+    private static PixelKernelsTest.Formula channelWise(DoubleUnaryOperator channel) {
+        return (r, g, b) -> new double[] {channel.applyAsDouble(r), channel.applyAsDouble(g), channel.applyAsDouble(b)};
+    }
+
+    @Test
+    void invertMatchesComplement() {
+        assertMatches(FilterType.INVERT, channelWise(c -> 1 - c));
+    }
+
+    @Test
+    void brightnessMatchesScaledChannels() {
+        assertMatches(FilterType.BRIGHTNESS, channelWise(c -> Math.min(c * 1.2, 1)));
+    }
+
+    @Test
+    void contrastMatchesStretchAroundMidpoint() {
+        assertMatches(FilterType.CONTRAST, channelWise(c -> Math.max(0, Math.min(1, 0.5 + (c - 0.5) * 1.5))));
+    }
+
+    @Test
+    void lookupTableMatchesKernelForParams() {
+        FilterParams params = FilterParams.defaults(FilterType.CONTRAST).with("factor", 2.5).with("midpoint", 0.3);
+        int[] src = edgePixels();
+        int[] viaParams = new int[src.length];
+        PixelKernels.apply(params, src, viaParams, 0, src.length);
+        int[] viaTable = new int[src.length];
+        LookupTables.contrast(2.5, 0.3).apply(src, viaTable, 0, src.length);
+        assertArrayEqualsPixels(viaTable, viaParams);
+    }
+
+    @Test
+    void tablesAreCompiledOncePerParameters() {
+        assertSame(LookupTables.brightness(1.7), LookupTables.brightness(1.7));
+        assertSame(LookupTables.contrast(2.5, 0.3),
+            LookupTables.forParams(FilterParams.defaults(FilterType.CONTRAST).with("factor", 2.5).with("midpoint", 0.3)));
+    }
+
+    @Test
+    void composedTableMatchesBothInTurn() {
+        LookupTable first = LookupTables.brightness(1.4);
+        LookupTable second = LookupTables.invert();
+        int[] src = edgePixels();
+        int[] stepwise = new int[src.length];
+        first.apply(src, stepwise, 0, src.length);
+        second.apply(stepwise, stepwise, 0, src.length);
+        int[] composed = new int[src.length];
+        first.andThen(second).apply(src, composed, 0, src.length);
+        assertArrayEqualsPixels(stepwise, composed);
+        for (int i = 0; i < src.length; i++) {
+            assertEquals(src[i] >>> 24, composed[i] >>> 24, "alpha");
+        }
+    }
+}
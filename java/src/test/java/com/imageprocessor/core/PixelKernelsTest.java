@@ -0,0 +1,134 @@
+package com.imageprocessor.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Packed-int kernels against the original per-pixel floating-point formulas; the lookup-table
+ * filters are covered by {@link LookupTablesTest}
+ */
+class PixelKernelsTest {
+
+    private static final FilterType[] POINTWISE = {FilterType.GRAYSCALE, FilterType.SEPIA,
+        FilterType.INVERT, FilterType.BRIGHTNESS, FilterType.CONTRAST};
+
+    private static final int[] EDGE_VALUES = {0, 1, 127, 128, 254, 255};
+
+    /** Every combination of edge values per channel, at several alpha levels */
+    static int[] edgePixels() {
+        int[] alphas = {0, 128, 255};
+        int[] pixels = new int[alphas.length * EDGE_VALUES.length * EDGE_VALUES.length * EDGE_VALUES.length];
+        int i = 0;
+        for (int a : alphas) {
+            for (int r : EDGE_VALUES) {
+                for (int g : EDGE_VALUES) {
+                    for (int b : EDGE_VALUES) {
+                        pixels[i++] = (a << 24) | (r << 16) | (g << 8) | b;
+                    }
+                }
+            }
+        }
+        return pixels;
+    }
+
+    @Test
+    void grayscaleMatchesLuminanceFormula() {
+        assertMatches(FilterType.GRAYSCALE, (r, g, b) -> {
+            double y = 0.299 * r + 0.587 * g + 0.114 * b;
+            return new double[] {y, y, y};
+        });
+    }
+
+    @Test
+    void sepiaMatchesMatrixFormula() {
+        assertMatches(FilterType.SEPIA, (r, g, b) -> new double[] {
+            Math.min(0.393 * r + 0.769 * g + 0.189 * b, 1),
+            Math.min(0.349 * r + 0.686 * g + 0.168 * b, 1),
+            Math.min(0.272 * r + 0.534 * g + 0.131 * b, 1)
+        });
+    }
+
+    @Test
+    void kernelsRunInPlace() {
+        for (FilterType filterType : POINTWISE) {
+            int[] src = edgePixels();
+            int[] expected = new int[src.length];
+            PixelKernels.apply(filterType, src, expected, 0, src.length);
+            PixelKernels.apply(filterType, src, src, 0, src.length);
+            assertArrayEqualsPixels(expected, src);
+        }
+    }
+
+    @Test
+    void kernelsWriteOnlyTheirRange() {
+        int[] src = edgePixels();
+        int from = src.length / 3;
+        int to = 2 * src.length / 3;
+        for (FilterType filterType : POINTWISE) {
+            int[] dst = new int[src.length];
+            Arrays.fill(dst, 0x12345678);
+            PixelKernels.apply(filterType, src, dst, from, to);
+            for (int i = 0; i < src.length; i++) {
+                if (i < from || i >= to) {
+                    assertEquals(0x12345678, dst[i], filterType + " wrote pixel " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void bandsOnTheFilterPoolMatchOnePass() {
+        ArgbImage image = FilterChainTest.sampleImage(211, 157, 3);
+        int width = image.getWidth();
+        int[] src = image.getPixels();
+        for (FilterType filterType : POINTWISE) {
+            int[] expected = new int[src.length];
+            PixelKernels.apply(filterType, src, expected, 0, src.length);
+            int[] banded = new int[src.length];
+            ParallelExecutor.forEachBand(width, image.getHeight(), (fromRow, toRow) ->
+                PixelKernels.apply(filterType, src, banded, fromRow * width, toRow * width));
+            assertArrayEqualsPixels(expected, banded);
+        }
+    }
+
+    interface Formula {
+        double[] apply(double r, double g, double b);
+    }
+
+    /**
+     * Kernel output within one 8-bit step of the formula on 0..1 channels, alpha untouched
+     */
+    static void assertMatches(FilterType filterType, Formula formula) {
+        int[] src = edgePixels();
+        int[] dst = new int[src.length];
+        PixelKernels.apply(filterType, src, dst, 0, src.length);
+        for (int i = 0; i < src.length; i++) {
+            int p = src[i];
+            double[] expected = formula.apply(((p >> 16) & 0xFF) / 255.0, ((p >> 8) & 0xFF) / 255.0, (p & 0xFF) / 255.0);
+            int q = dst[i];
+            String where = filterType + " of " + Integer.toHexString(p) + " gave " + Integer.toHexString(q);
+            assertEquals(p >>> 24, q >>> 24, where);
+            assertChannel(expected[0], (q >> 16) & 0xFF, where);
+            assertChannel(expected[1], (q >> 8) & 0xFF, where);
+            assertChannel(expected[2], q & 0xFF, where);
+        }
+    }
+
+    private static void assertChannel(double expected, int actual, String where) {
+        assertTrue(Math.abs(expected * 255 - actual) <= 1, where);
+    }
+
+    static void assertArrayEqualsPixels(int[] expected, int[] actual) {
+        assertEquals(expected.length, actual.length, "pixel count");
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != actual[i]) {
+                throw new AssertionError("pixel " + i + ": expected " + Integer.toHexString(expected[i])
+                    + " but was " + Integer.toHexString(actual[i]));
+            }
+        }
+    }
+}
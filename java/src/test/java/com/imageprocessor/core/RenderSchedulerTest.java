@@ -0,0 +1,159 @@
+package com.imageprocessor.core;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * One render per lane, superseded renders never reporting back, callbacks on the UI executor
+ */
+class RenderSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final ExecutorService ui = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "test-ui"));
+    private final RenderScheduler scheduler = new RenderScheduler(2, ui);
+    /** Everything delivered, as "result@thread" or "failed:message" */
+    private final BlockingQueue<String> delivered = new LinkedBlockingQueue<>();
+
+    @AfterEach
+    void stop() {
+        scheduler.shutdown();
+        ui.shutdownNow();
+    }
+
+    private void submit(Object lane, Callable<String> render) {
+        scheduler.submit(lane, render,
+            result -> delivered.add(result + "@" + Thread.currentThread().getName()),
+            error -> delivered.add("failed:" + error.getMessage()));
+    }
+
+    private String next() throws InterruptedException {
+        return delivered.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /** Let callbacks already handed to the UI executor run, then check none came */
+    private void assertNothingMoreDelivered() throws Exception {
+        ui.submit(() -> { }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNull(delivered.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void deliversOnTheUiExecutor() throws Exception {
+        submit("left", () -> "done");
+        assertEquals("done@test-ui", next());
+        assertNothingMoreDelivered();
+        assertFalse(scheduler.isBusy("left"));
+    }
+
+    @Test
+    void reportsFailures() throws Exception {
+        submit("left", () -> {
+            throw new IllegalStateException("broken");
+        });
+        assertEquals("failed:broken", next());
+    }
+
+    @Test
+    void newSubmissionCancelsTheRunningRenderAndWaitsForIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        submit("left", () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            running.decrementAndGet();
+            return "stale";
+        });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        submit("left", () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            running.decrementAndGet();
+            return "latest";
+        });
+
+        assertEquals("latest@test-ui", next());
+        assertTrue(interrupted.get());
+        assertEquals(1, maxRunning.get());
+        assertNothingMoreDelivered();
+    }
+
+    @Test
+    void queuedRenderIsDroppedForANewerOne() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean droppedRan = new AtomicBoolean();
+        submit("left", () -> {
+            started.countDown();
+            // Ignores the interrupt, so the next submissions have to queue
+            while (true) {
+                try {
+                    release.await();
+                    return "first";
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        submit("left", () -> {
+            droppedRan.set(true);
+            return "dropped";
+        });
+        submit("left", () -> "latest");
+        assertTrue(scheduler.isBusy("left"));
+        release.countDown();
+
+        assertEquals("latest@test-ui", next());
+        assertFalse(droppedRan.get());
+        assertNothingMoreDelivered();
+    }
+
+    @Test
+    void cancelledLaneNeverReportsBack() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        submit("left", () -> {
+            started.countDown();
+            release.await();
+            return "cancelled";
+        });
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        scheduler.cancel("left");
+        assertFalse(scheduler.isBusy("left"));
+        release.countDown();
+        assertNothingMoreDelivered();
+    }
+
+    @Test
+    void lanesRenderSideBySide() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Callable<String> render = () -> {
+            bothStarted.countDown();
+            return bothStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS) ? "together" : "alone";
+        };
+        submit("left", render);
+        submit("right", render);
+        assertEquals("together@test-ui", next());
+        assertEquals("together@test-ui", next());
+    }
+}
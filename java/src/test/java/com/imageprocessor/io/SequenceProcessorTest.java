@@ -0,0 +1,119 @@
+package com.imageprocessor.io;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.core.FilterType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SequenceProcessorTest {
+
+    /** More frames than the ring holds, so every slot is reused */
+    private static final int FRAMES = 3 * SequenceProcessor.RING_SIZE + 1;
+
+    /** Decoded straight into the ring, through a temporary image, and straight in again */
+    private static final String[] FORMATS = {"png", "bmp", "jpg"};
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Frames cycling through translucent PNG, BMP and JPEG, with a size change part way through,
+     * named so that plain string order would put frame_10 before frame_2
+     */
+    private List<File> writeFrames() throws IOException {
+        File input = directory.resolve("in").toFile();
+        assertTrue(input.mkdirs());
+        for (int i = 0; i < FRAMES; i++) {
+            int width = i < FRAMES / 2 ? 48 : 40;
+            int height = i < FRAMES / 2 ? 36 : 44;
+            Random random = new Random(i);
+            int[] pixels = new int[width * height];
+            String format = FORMATS[i % FORMATS.length];
+            boolean png = format.equals("png");
+            for (int p = 0; p < pixels.length; p++) {
+                int alpha = png ? 0x40 + random.nextInt(0xC0) : 0xFF;
+                pixels[p] = alpha << 24 | random.nextInt(0x1000000);
+            }
+            ImageCodec.write(new ArgbImage(width, height, pixels), new File(input, "frame_" + i + "." + format));
+        }
+        return SequenceProcessor.listFrames(input);
+    }
+
+    private void assertMatchesRender(FilterChain chain) throws Exception {
+        List<File> frames = writeFrames();
+        File output = directory.resolve("out-" + chain.getName().replace(' ', '_')).toFile();
+        List<int[]> seen = new ArrayList<>();
+        Set<int[]> buffers = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Integer> order = new ArrayList<>();
+
+        SequenceProcessor processor = new SequenceProcessor(frames, chain);
+        processor.setOutput(output, "png");
+        processor.setOnFrame((index, frame) -> {
+            order.add(index);
+            buffers.add(frame.getPixels());
+            seen.add(frame.getPixels().clone());
+        });
+        SequenceProcessor.Report report = processor.start().get(30, TimeUnit.SECONDS);
+
+        assertEquals(FRAMES, report.frames());
+        assertEquals(FRAMES, report.totalFrames());
+        assertEquals(0, report.lateFrames());
+        for (int i = 0; i < FRAMES; i++) {
+            assertEquals(i, order.get(i));
+            ArgbImage source = ImageCodec.read(frames.get(i));
+            int[] expected = chain.render(source).getPixels();
+            assertArrayEquals(expected, seen.get(i), "frame " + i);
+            File encoded = new File(output, "frame_" + i + ".png");
+            assertArrayEquals(expected, ImageCodec.read(encoded).getPixels(), "encoded frame " + i);
+        }
+        // Frame and scratch buffers per slot, once per frame size
+        assertTrue(buffers.size() <= 2 * 2 * SequenceProcessor.RING_SIZE, buffers.size() + " buffers");
+    }
+
+    @Test
+    void listsFramesInNaturalOrder() throws IOException {
+        List<File> frames = writeFrames();
+        for (int i = 0; i < FRAMES; i++) {
+            assertTrue(frames.get(i).getName().startsWith("frame_" + i + "."), frames.get(i).getName());
+        }
+    }
+
+    @Test
+    void pointwiseFramesMatchRender() throws Exception {
+        assertMatchesRender(FilterChain.of(List.of(FilterType.SEPIA, FilterType.INVERT)));
+    }
+
+    @Test
+    void neighbourhoodFramesMatchRender() throws Exception {
+        assertMatchesRender(FilterChain.of(List.of(FilterType.BLUR, FilterType.AUTO_LEVELS)));
+    }
+
+    @Test
+    void corruptFrameFailsTheSequence() throws Exception {
+        List<File> frames = new ArrayList<>(writeFrames());
+        Files.write(frames.get(3).toPath(), new byte[] {1, 2, 3});
+        SequenceProcessor processor = new SequenceProcessor(frames, FilterChain.of(List.of(FilterType.INVERT)));
+        CompletionException failure = assertThrows(CompletionException.class,
+            () -> processor.start().orTimeout(30, TimeUnit.SECONDS).join());
+        assertTrue(failure.getCause() instanceof IOException, String.valueOf(failure.getCause()));
+    }
+}
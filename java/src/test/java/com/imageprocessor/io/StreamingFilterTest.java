@@ -0,0 +1,110 @@
+package com.imageprocessor.io;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.core.FilterParams;
+import com.imageprocessor.core.FilterType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingFilterTest {
+
+    @TempDir
+    Path directory;
+
+    private File writeSample(int width, int height) throws IOException {
+        Random random = new Random(width * 31L + height);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        File file = directory.resolve("sample.png").toFile();
+        ImageCodec.write(new ArgbImage(width, height, pixels), file);
+        return file;
+    }
+
+    private void assertStreamsLikeRender(FilterChain chain, int stripRows) throws IOException {
+        int width = 131;
+        int height = 97;
+        File input = writeSample(width, height);
+        File output = directory.resolve("streamed.png").toFile();
+        StreamingFilter.process(input, output, "png", chain, width * stripRows, null);
+
+        int[] expected = chain.render(ImageCodec.read(input)).getPixels();
+        ArgbImage streamed = ImageCodec.read(output);
+        assertEquals(width, streamed.getWidth());
+        assertEquals(height, streamed.getHeight());
+        int[] actual = streamed.getPixels();
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != actual[i]) {
+                throw new AssertionError(chain.getName() + " differs at row " + i / width + ", column " + i % width);
+            }
+        }
+    }
+
+    @Test
+    void pointwiseChainMatchesInMemory() throws IOException {
+        assertStreamsLikeRender(FilterChain.of(FilterType.SEPIA, FilterType.CONTRAST), 8);
+    }
+
+    @Test
+    void neighbourhoodChainMatchesInMemoryAcrossStripEdges() throws IOException {
+        // Strips narrower than the halo, so every strip boundary depends on its neighbours
+        FilterChain chain = FilterChain.ofParams(List.of(
+            FilterParams.defaults(FilterType.BLUR).with("radius", 4),
+            FilterParams.defaults(FilterType.SHARPEN),
+            FilterParams.defaults(FilterType.EDGE_DETECT)));
+        assertStreamsLikeRender(chain, 3);
+        assertStreamsLikeRender(chain, 16);
+    }
+
+    @Test
+    void bmpInputMatchesInMemory() throws IOException {
+        File input = writeSample(131, 97);
+        File bmp = directory.resolve("sample.bmp").toFile();
+        ImageCodec.write(ImageCodec.read(input), bmp);
+        FilterChain chain = FilterChain.of(FilterType.BLUR, FilterType.GRAYSCALE);
+        File output = directory.resolve("streamed.png").toFile();
+        StreamingFilter.process(bmp, output, "png", chain, 131 * 5, null);
+        assertArrayEquals(chain.render(ImageCodec.read(bmp)).getPixels(), ImageCodec.read(output).getPixels());
+    }
+
+    @Test
+    void interlacedInputFailsWithoutOutput() throws IOException {
+        File input = directory.resolve("interlaced.png").toFile();
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(input)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(ImageCodec.toBufferedImage(ImageCodec.read(writeSample(64, 48)), false), null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        File output = directory.resolve("streamed.png").toFile();
+        assertThrows(IOException.class, () ->
+            StreamingFilter.process(input, output, "png", FilterChain.of(FilterType.INVERT), 64 * 4, null));
+        assertFalse(output.exists());
+    }
+
+    @Test
+    void singleStripMatchesInMemory() throws IOException {
+        assertStreamsLikeRender(FilterChain.of(FilterType.BLUR, FilterType.INVERT), 1000);
+    }
+}
@@ -0,0 +1,115 @@
+package com.imageprocessor.server;
+
+import com.imageprocessor.core.ArgbImage;
+import com.imageprocessor.core.FilterChain;
+import com.imageprocessor.io.ImageCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private FilterServer server;
+
+    @AfterEach
+    void stop() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private InetSocketAddress start(long maxPixels) throws IOException {
+        // One worker and no queue, so a second request at once is refused
+        server = new FilterServer(new InetSocketAddress("127.0.0.1", 0), 1, 0,
+            FilterServer.DEFAULT_MAX_BODY_BYTES, maxPixels);
+        return server.start();
+    }
+
+    private static byte[] samplePng(int width, int height) throws IOException {
+        Random random = new Random(width * 31L + height);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageCodec.write(new ArgbImage(width, height, pixels), out, "png");
+        return out.toByteArray();
+    }
+
+    private HttpResponse<byte[]> post(InetSocketAddress address, String query, byte[] body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create("http://127.0.0.1:" + address.getPort() + "/filter?" + query))
+            .header("Content-Type", "image/png")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    @Test
+    void filtersUploadedImage() throws Exception {
+        InetSocketAddress address = start(FilterServer.DEFAULT_MAX_PIXELS);
+        HttpResponse<byte[]> response = post(address, "filter=invert", samplePng(40, 30));
+        assertEquals(200, response.statusCode());
+        ArgbImage result = ImageCodec.read(response.body(), "png");
+        assertEquals(40, result.getWidth());
+        assertEquals(30, result.getHeight());
+    }
+
+    @Test
+    void refusesRequestsBeyondTheQueue() throws Exception {
+        InetSocketAddress address = start(FilterServer.DEFAULT_MAX_PIXELS);
+        byte[] body = samplePng(40, 30);
+        // Holds the only admission permit while the server waits for the rest of its body
+        try (Socket slow = new Socket(address.getAddress(), address.getPort())) {
+            OutputStream out = slow.getOutputStream();
+            out.write(("POST /filter?filter=invert HTTP/1.1\r\nHost: localhost\r\n"
+                + "Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(body, 0, body.length / 2);
+            out.flush();
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (server.getAcceptedCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+
+            HttpResponse<byte[]> response = post(address, "filter=invert", body);
+            assertEquals(429, response.statusCode());
+            assertTrue(response.headers().firstValue("Retry-After").isPresent());
+            assertEquals(1, server.getRejectedCount());
+        }
+    }
+
+    @Test
+    void refusesImagesOverThePixelLimit() throws Exception {
+        InetSocketAddress address = start(1000);
+        assertEquals(413, post(address, "filter=invert", samplePng(40, 30)).statusCode());
+        assertEquals(200, post(address, "filter=invert", samplePng(40, 20)).statusCode());
+    }
+
+    @Test
+    void boundsChainsAndTheirMetricNames() {
+        FilterChain chain = FilterServer.parseChain(Map.of("chain", "grayscale,sepia,invert"));
+        assertEquals("chain/3 steps", FilterServer.metricName(chain));
+        assertEquals("Blur", FilterServer.metricName(FilterServer.parseChain(Map.of("filter", "blur"))));
+
+        String tooLong = String.join(",", Collections.nCopies(FilterServer.MAX_CHAIN_STEPS + 1, "invert"));
+        assertThrows(IllegalArgumentException.class, () -> FilterServer.parseChain(Map.of("chain", tooLong)));
+    }
+}